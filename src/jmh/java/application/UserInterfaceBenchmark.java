@@ -0,0 +1,57 @@
+package application;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserInterfaceBenchmark {
+    
+    private PrintStream out;
+    private ChessPiece[][] pieces;
+    private boolean[][] possibleMoves;
+    
+    @Setup
+    public void setup() {
+        ChessMatch chessMatch = new ChessMatch();
+        pieces = chessMatch.getPieces();
+        possibleMoves = chessMatch.possibleMoves(pieces[6][4].getChessPosition());
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+    
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+    
+    @Benchmark
+    public void printBoard() {
+        UserInterface.printBoard(pieces);
+    }
+    
+    @Benchmark
+    public void printBoardWithMoves() {
+        UserInterface.printBoard(pieces, possibleMoves);
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+package chess;
+
+import chess.search.Evaluation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChessMatchBenchmark {
+    
+    private ChessMatch middlegame;
+    private ChessMatch check;
+    private ChessMatch fresh;
+    private MoveList moves;
+    private PawnCache pawnCache;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        middlegame = Positions.middlegame();
+        check = Positions.check();
+        moves = new MoveList();
+        pawnCache = new PawnCache(1 << 10);
+    }
+    
+    @Setup(Level.Invocation)
+    public void freshMatch() {
+        fresh = new ChessMatch(new TranspositionTable(2, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE));
+    }
+    
+    @Benchmark
+    public ChessPiece performChessMovie() {
+        return fresh.performChessMovie(Positions.position("e2"), Positions.position("e4"));
+    }
+    
+    @Benchmark
+    public boolean testCheck() {
+        return check.testCheck(check.getCurrentPlayer());
+    }
+    
+    @Benchmark
+    public boolean testCheckMate() {
+        return check.testCheck(check.getCurrentPlayer()) && !check.hasAnyLegalMove(check.getCurrentPlayer());
+    }
+    
+    @Benchmark
+    public ChessPiece[][] getPieces() {
+        return middlegame.getPieces();
+    }
+    
+    @Benchmark
+    public PositionSnapshot getSnapshot() {
+        return middlegame.getSnapshot();
+    }
+    
+    @Benchmark
+    public PawnStructure getPawnStructure() {
+        return middlegame.getPawnStructure();
+    }
+    
+    @Benchmark
+    public int legalMoves() {
+        middlegame.legalMoves(moves);
+        return moves.size();
+    }
+    
+    @Benchmark
+    public int evaluate() {
+        return Evaluation.evaluate(middlegame.getBoard(), middlegame.getCurrentPlayer(), pawnCache);
+    }
+    
+    @Benchmark
+    public long perft3() {
+        return new Perft(middlegame).perft(3);
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package chess;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PieceMovesBenchmark {
+    
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    private PieceType type;
+    
+    private ChessPiece piece;
+    
+    @Setup
+    public void setup() {
+        ChessMatch chessMatch = Positions.middlegame();
+        for (ChessPiece[] row : chessMatch.getPieces()) {
+            for (ChessPiece p : row) {
+                if (piece == null && p != null && p.getType() == type && p.getColor() == chessMatch.getCurrentPlayer()) {
+                    piece = p;
+                }
+            }
+        }
+    }
+    
+    @Benchmark
+    public boolean[][] possibleMoves() {
+        return piece.possibleMoves();
+    }
+    
+    @Benchmark
+    public long possibleMovesMask() {
+        return piece.possibleMovesMask();
+    }
+    
+}
\ No newline at end of file
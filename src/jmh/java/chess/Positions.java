@@ -0,0 +1,31 @@
+package chess;
+
+class Positions {
+    
+    static final String MIDDLEGAME = "e2e4 e7e5 g1f3 b8c6 f1c4 f8c5 c2c3 g8f6 d2d3 d7d6 e1g1 e8g8";
+    static final String CHECK = "e2e4 f7f6 d1h5";
+    
+    private Positions() {
+    }
+    
+    static ChessMatch middlegame() {
+        return play(MIDDLEGAME);
+    }
+    
+    static ChessMatch check() {
+        return play(CHECK);
+    }
+    
+    static ChessMatch play(String moves) {
+        ChessMatch chessMatch = new ChessMatch();
+        for (String move : moves.split(" ")) {
+            chessMatch.performChessMovie(position(move.substring(0, 2)), position(move.substring(2, 4)));
+        }
+        return chessMatch;
+    }
+    
+    static ChessPosition position(String square) {
+        return new ChessPosition(square.charAt(0), square.charAt(1) - '0');
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,66 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.archive.GameArchiveReader;
+import chess.archive.GameArchiveWriter;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+public class ArchiveProgram {
+    
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length == 3 && args[0].equals("pack")) {
+            pack(Path.of(args[1]), Path.of(args[2]));
+        } else if (args.length == 2 && args[0].equals("scan")) {
+            scan(Path.of(args[1]));
+        } else {
+            System.out.println("Usage: ArchiveProgram pack <file.pgn> <file.cga> | scan <file.cga>");
+        }
+    }
+    
+    private static void pack(Path source, Path target) throws IOException {
+        long games;
+        long skipped = 0;
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(source);
+             GameArchiveWriter writer = new GameArchiveWriter(target)) {
+            PgnGame game;
+            while ((game = reader.next()) != null) {
+                try {
+                    writer.write(game);
+                } catch (ChessException e) {
+                    skipped++;
+                    System.out.println("Game " + (writer.getGames() + skipped) + " skipped: " + e.getMessage());
+                }
+            }
+            games = writer.getGames();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d games packed (%d skipped) in %.3f s: %d bytes of PGN, %d bytes of archive",
+                games, skipped, seconds, Files.size(source), Files.size(target)));
+    }
+    
+    private static void scan(Path path) throws IOException {
+        ChessMatch chessMatch = new ChessMatch();
+        long games = 0;
+        long plies = 0;
+        long start = System.nanoTime();
+        try (GameArchiveReader reader = new GameArchiveReader(path)) {
+            while (reader.next()) {
+                plies += reader.replay(chessMatch);
+                games++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d games, %d plies replayed in %.3f s: %.0f games/min",
+                games, plies, seconds, games * 60 / Math.max(seconds, 1e-9)));
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,74 @@
+package application;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.book.OpeningBook;
+import chess.book.OpeningBookBuilder;
+import chess.pgn.PgnGame;
+import chess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+public class BookProgram {
+    
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length >= 3 && args[0].equals("build")) {
+            int plies = (args.length > 3) ? Integer.parseInt(args[3]) : 20;
+            int minGames = (args.length > 4) ? Integer.parseInt(args[4]) : 1;
+            build(Path.of(args[1]), Path.of(args[2]), plies, minGames);
+        } else if (args.length >= 2 && args[0].equals("probe")) {
+            probe(Path.of(args[1]), (args.length > 2) ? args[2] : ChessMatch.INITIAL_FEN);
+        } else {
+            System.out.println("Usage: BookProgram build <file.pgn> <file.book> [plies] [min games] | probe <file.book> [fen]");
+        }
+    }
+    
+    private static void build(Path source, Path target, int plies, int minGames) throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+        long skipped = 0;
+        long start = System.nanoTime();
+        try (PgnReader reader = new PgnReader(source)) {
+            PgnGame game;
+            while ((game = reader.next()) != null) {
+                try {
+                    if (!builder.add(game)) {
+                        skipped++;
+                    }
+                } catch (ChessException e) {
+                    skipped++;
+                }
+            }
+        }
+        long entries = builder.write(target, minGames);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d games (%d skipped), %d positions, %d entries written in %.3f s",
+                builder.getGames(), skipped, builder.getPositions(), entries, seconds));
+    }
+    
+    private static void probe(Path path, String fen) throws IOException {
+        try (OpeningBook book = new OpeningBook(path)) {
+            ChessMatch chessMatch = new ChessMatch(fen);
+            MoveList moves = new MoveList();
+            book.moves(chessMatch, moves);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < moves.size(); i++) {
+                sb.append(' ').append(Move.toString(moves.get(i)));
+            }
+            int best = book.bestMove(chessMatch);
+            System.out.println(moves.size() + " book moves:" + sb + ", best " + (best == Move.NONE ? "none" : Move.toString(best)));
+            
+            int lookups = 1_000_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < lookups; i++) {
+                book.moves(chessMatch, moves);
+            }
+            System.out.println(String.format(Locale.ROOT, "%.0f ns per lookup", (System.nanoTime() - start) / (double) lookups));
+        }
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Perft;
+
+import java.util.Locale;
+
+public class PerftProgram {
+    
+    private static final String[] NAMES = {
+            "start position",
+            "kiwipete",
+            "position 3",
+            "position 4",
+            "position 5",
+            "position 6"
+    };
+    
+    private static final String[] FENS = {
+            ChessMatch.INITIAL_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"
+    };
+    
+    private static final long[][] EXPECTED = {
+            {20L, 400L, 8902L, 197281L, 4865609L},
+            {48L, 2039L, 97862L, 4085603L},
+            {14L, 191L, 2812L, 43238L, 674624L},
+            {6L, 264L, 9467L, 422333L},
+            {44L, 1486L, 62379L, 2103487L},
+            {46L, 2079L, 89890L, 3894594L}
+    };
+    
+    public static void main(String[] args) {
+        
+        int maxDepth = (args.length > 0) ? Integer.parseInt(args[0]) : 5;
+        int failures = 0;
+        
+        for (int i = 0; i < NAMES.length; i++) {
+            System.out.println(NAMES[i] + ": " + FENS[i]);
+            for (int depth = 1; depth <= Math.min(maxDepth, EXPECTED[i].length); depth++) {
+                Perft perft = new Perft(new ChessMatch(FENS[i]));
+                long start = System.nanoTime();
+                long nodes = perft.perft(depth);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                boolean ok = nodes == EXPECTED[i][depth - 1];
+                if (!ok) {
+                    failures++;
+                }
+                System.out.println(String.format(Locale.ROOT, "  depth %d: %12d nodes %10.3f s %12.0f nodes/s %s",
+                        depth, nodes, seconds, nodes / Math.max(seconds, 1e-9), ok ? "OK" : "FAILED (expected " + EXPECTED[i][depth - 1] + ")"));
+            }
+        }
+        
+        if (failures > 0) {
+            throw new IllegalStateException("Perft failed for " + failures + " depth(s)!");
+        }
+    }
+    
+}
\ No newline at end of file
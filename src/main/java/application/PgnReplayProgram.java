@@ -0,0 +1,42 @@
+package application;
+
+import chess.pgn.BatchValidator;
+import chess.pgn.PgnReader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PgnReplayProgram {
+    
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length < 1) {
+            System.out.println("Usage: PgnReplayProgram <file.pgn> [threads]");
+            return;
+        }
+        
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        AtomicLong illegal = new AtomicLong();
+        AtomicLong plies = new AtomicLong();
+        long games;
+        long start = System.nanoTime();
+        
+        try (PgnReader reader = new PgnReader(Path.of(args[0]));
+             BatchValidator validator = new BatchValidator(threads)) {
+            games = validator.validate(reader, verdict -> {
+                plies.addAndGet(verdict.getPlies());
+                if (!verdict.isLegal()) {
+                    illegal.incrementAndGet();
+                    System.out.println(verdict);
+                }
+            });
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format(Locale.ROOT, "%d games (%d illegal), %d plies in %.3f s on %d threads: %.0f games/min",
+                games, illegal.get(), plies.get(), seconds, threads, games * 60 / Math.max(seconds, 1e-9)));
+    }
+    
+}
\ No newline at end of file
@@ -6,22 +6,39 @@ import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.server.GameClient;
+import chess.server.GameServer;
+import chess.server.MatchJournal;
+import chess.server.MatchRegistry;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.InputMismatchException;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 public class Program {
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length > 0 && args[0].equals("server")) {
+            serve((args.length > 1) ? Integer.parseInt(args[1]) : 7777, (args.length > 2) ? Integer.parseInt(args[2]) : 10_000,
+                    (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors(),
+                    (args.length > 4) ? Path.of(args[4]) : null);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("connect")) {
+            play((args.length > 1) ? Integer.parseInt(args[1]) : 7777, (args.length > 2) ? Long.parseLong(args[2]) : 0);
+            return;
+        }
         
         Scanner sc = new Scanner(System.in);
         ChessMatch chessMatch = new ChessMatch();
         List<ChessPiece> captured = new ArrayList<>();
         
-        while (!chessMatch.getCheckMate()) {
+        while (!chessMatch.getCheckMate() && !chessMatch.getStaleMate()) {
             try {
                 UserInterface.clearScreen();
                 UserInterface.printMatch(chessMatch, captured);
@@ -69,4 +86,88 @@ public class Program {
         UserInterface.printMatch(chessMatch, captured);
     }
     
+    // With a journal directory, matches survive a restart: the journal is replayed before serving
+    private static void serve(int port, int maxSessions, int loops, Path journalDirectory) throws IOException {
+        MatchRegistry registry;
+        if (journalDirectory == null) {
+            registry = new MatchRegistry(maxSessions);
+        } else {
+            MatchJournal journal = new MatchJournal(journalDirectory);
+            registry = new MatchRegistry(maxSessions, 16 * Runtime.getRuntime().availableProcessors(), journal);
+            long start = System.nanoTime();
+            int recovered = registry.recover();
+            // Starting over from one snapshot per match keeps the journal, and the next recovery, small
+            registry.checkpoint();
+            System.out.println(String.format(Locale.ROOT, "Recovered %d matches from %s in %.3f s", recovered, journal.getPath(),
+                    (System.nanoTime() - start) / 1e9));
+        }
+        GameServer server = new GameServer(port, registry, loops);
+        server.start();
+        System.out.println("Serving up to " + maxSessions + " matches on localhost:" + server.getPort() + " with " + loops + " event loops");
+    }
+    
+    // Plays a match hosted by a game server; match 0 starts a new one, any other id joins it
+    private static void play(int port, long match) throws IOException {
+        Scanner sc = new Scanner(System.in);
+        try (GameClient client = new GameClient(port)) {
+            long id = (match == 0) ? client.newMatch() : match;
+            char[] board = client.watch(id);
+            String status = "PLAY";
+            
+            while (!status.equals("CHECKMATE") && !status.equals("STALEMATE")) {
+                try {
+                    String update;
+                    while ((update = client.pollUpdate()) != null) {
+                        status = update.split(" ")[2];
+                    }
+                    UserInterface.clearScreen();
+                    UserInterface.printBoard(board, 0L);
+                    System.out.println();
+                    System.out.println("Match " + id + ": " + status);
+                    
+                    System.out.print("Source: ");
+                    ChessPosition source = UserInterface.readChessPosition(sc);
+                    long targets = 0L;
+                    for (String move : client.legalMoves(id)) {
+                        if (move.startsWith(source.toString())) {
+                            targets |= 1L << ((8 - (move.charAt(3) - '0')) * 8 + (move.charAt(2) - 'a'));
+                        }
+                    }
+                    UserInterface.clearScreen();
+                    UserInterface.printBoard(board, targets);
+                    System.out.println();
+                    
+                    System.out.print("Target: ");
+                    ChessPosition target = UserInterface.readChessPosition(sc);
+                    String move = source.toString() + target;
+                    char piece = board[(8 - source.getRow()) * 8 + (source.getColumn() - 'a')];
+                    if (Character.toUpperCase(piece) == 'P' && (target.getRow() == 8 || target.getRow() == 1)) {
+                        System.out.println("Enter piece for promotion: (B/N/R/Q)");
+                        String type = sc.nextLine().toUpperCase();
+                        while (!type.equals("B") && !type.equals("N") && !type.equals("R") && !type.equals("Q")) {
+                            System.out.println("Invalid value! Enter piece for promotion (B/N/R/Q)");
+                            type = sc.nextLine().toUpperCase();
+                        }
+                        move += type.toLowerCase();
+                    }
+                    status = client.move(id, move);
+                } catch (ChessException e) {
+                    System.out.println(e.getMessage());
+                    System.out.println();
+                    System.out.print("Type enter to try again: ");
+                    sc.nextLine();
+                } catch (InputMismatchException e) {
+                    System.out.println(e.getMessage());
+                    System.out.println();
+                    System.out.print("Type enter to try again: ");
+                    sc.nextLine();
+                }
+            }
+            UserInterface.clearScreen();
+            UserInterface.printBoard(board, 0L);
+            System.out.println();
+            System.out.println("Match " + id + ": " + status);
+        }
+    }
+    
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package application;
+
+import chess.server.MatchJournal;
+import chess.server.MatchRegistry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+// Fills a journal with many matches, then measures how long it takes to rebuild them all from it, both from the
+// journal as written and after it was compacted into one snapshot per match
+public class RecoveryProgram {
+    
+    // Knights out and back again: legal forever, so every match can keep moving for any number of rounds
+    private static final String[] SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+    
+    public static void main(String[] args) throws Exception {
+        
+        if (args.length < 1) {
+            System.out.println("Usage: RecoveryProgram <journal directory> [matches] [plies per match]");
+            return;
+        }
+        Path directory = Path.of(args[0]);
+        int matches = (args.length > 1) ? Integer.parseInt(args[1]) : 100_000;
+        int plies = (args.length > 2) ? Integer.parseInt(args[2]) : 40;
+        int stripes = 16 * Runtime.getRuntime().availableProcessors();
+        
+        String[] expected = new String[matches + 1];
+        try (MatchJournal journal = new MatchJournal(directory)) {
+            MatchRegistry registry = new MatchRegistry(matches, stripes, journal);
+            if (registry.recover() > 0) {
+                System.out.println("The journal in " + directory + " is not empty, recovering it as it is");
+            } else {
+                long start = System.nanoTime();
+                for (int i = 0; i < matches; i++) {
+                    registry.create(null);
+                }
+                for (int ply = 0; ply < plies; ply++) {
+                    for (long id = 1; id <= matches; id++) {
+                        registry.apply(id, session -> session.move(SHUFFLE[session.getChessMatch().getHalfMoveClock() % SHUFFLE.length]));
+                    }
+                }
+                journal.sync();
+                for (long id = 1; id <= matches; id++) {
+                    expected[(int) id] = registry.apply(id, session -> session.getChessMatch().toFen());
+                }
+                System.out.println(String.format(Locale.ROOT, "%d matches, %d moves journaled in %.3f s, %d bytes",
+                        matches, (long) matches * plies, (System.nanoTime() - start) / 1e9, Files.size(journal.getPath())));
+            }
+        }
+        
+        for (int pass = 0; pass < 2; pass++) {
+            long start = System.nanoTime();
+            try (MatchJournal journal = new MatchJournal(directory)) {
+                MatchRegistry registry = new MatchRegistry(matches, stripes, journal);
+                int recovered = registry.recover();
+                double seconds = (System.nanoTime() - start) / 1e9;
+                int mismatches = 0;
+                for (long id = 1; id <= matches && expected[(int) id] != null; id++) {
+                    if (!expected[(int) id].equals(registry.apply(id, session -> session.getChessMatch().toFen()))) {
+                        mismatches++;
+                    }
+                }
+                System.out.println(String.format(Locale.ROOT, "%d matches recovered from %d bytes in %.3f s, %d differ from before the restart",
+                        recovered, Files.size(journal.getPath()), seconds, mismatches));
+                if (pass == 0) {
+                    start = System.nanoTime();
+                    registry.checkpoint();
+                    System.out.println(String.format(Locale.ROOT, "Checkpoint of %d matches written in %.3f s", recovered, (System.nanoTime() - start) / 1e9));
+                }
+            }
+        }
+    }
+    
+}
\ No newline at end of file
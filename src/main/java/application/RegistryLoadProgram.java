@@ -0,0 +1,68 @@
+package application;
+
+import chess.server.MatchRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Submits moves to random matches of one registry from a growing number of threads, to show how move
+// throughput scales when threads only contend on the stripe of the match they touch
+public class RegistryLoadProgram {
+    
+    // Knights out and back again: legal forever, so every match can keep moving for any number of rounds
+    private static final String[] SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+    
+    public static void main(String[] args) throws Exception {
+        
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 10_000;
+        int maxThreads = (args.length > 1) ? Integer.parseInt(args[1]) : Math.max(4, Runtime.getRuntime().availableProcessors());
+        double seconds = (args.length > 2) ? Double.parseDouble(args[2]) : 2;
+        
+        MatchRegistry registry = new MatchRegistry(matches);
+        long[] ids = new long[matches];
+        for (int i = 0; i < matches; i++) {
+            ids[i] = registry.create(null);
+        }
+        System.out.println(String.format(Locale.ROOT, "%d matches on %d stripes, %d cores",
+                matches, registry.getStripes(), Runtime.getRuntime().availableProcessors()));
+        
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            AtomicBoolean running = new AtomicBoolean(true);
+            long[] counts = new long[threads];
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int index = t;
+                Thread worker = new Thread(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long count = 0;
+                    while (running.get()) {
+                        // The move depends on the match's own state, read under the same lock that applies it
+                        registry.apply(ids[random.nextInt(ids.length)],
+                                session -> session.move(SHUFFLE[session.getChessMatch().getHalfMoveClock() % SHUFFLE.length]));
+                        count++;
+                    }
+                    counts[index] = count;
+                }, "registry-load-" + t);
+                workers.add(worker);
+            }
+            long start = System.nanoTime();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+            Thread.sleep((long) (seconds * 1000));
+            running.set(false);
+            long moves = 0;
+            for (int t = 0; t < threads; t++) {
+                workers.get(t).join();
+                moves += counts[t];
+            }
+            double elapsed = (System.nanoTime() - start) / 1e9;
+            System.out.println(String.format(Locale.ROOT, "%2d threads: %d moves in %.3f s, %.0f moves/s",
+                    threads, moves, elapsed, moves / elapsed));
+        }
+    }
+    
+}
\ No newline at end of file
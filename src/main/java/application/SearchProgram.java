@@ -0,0 +1,46 @@
+package application;
+
+import chess.ChessMatch;
+import chess.search.ParallelSearch;
+import chess.search.Search;
+import chess.search.SearchLimits;
+import chess.search.SearchResult;
+
+import java.util.Arrays;
+
+public class SearchProgram {
+    
+    private static final String[] NAMES = {
+            "start position",
+            "kiwipete",
+            "middlegame",
+            "mate in 2"
+    };
+    
+    private static final String[] FENS = {
+            ChessMatch.INITIAL_FEN,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+            "r2qkb1r/pp2nppp/3p4/2pNN1B1/2BnP3/3P4/PPP2PPP/R2bK2R w KQkq - 1 1"
+    };
+    
+    public static void main(String[] args) {
+        
+        long timeMillis = (args.length > 0) ? Long.parseLong(args[0]) : 1000L;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+        
+        for (int i = 0; i < NAMES.length; i++) {
+            ChessMatch chessMatch = new ChessMatch(FENS[i]);
+            SearchResult result;
+            if (threads == 1) {
+                result = new Search(chessMatch).search(SearchLimits.time(timeMillis));
+            } else {
+                try (ParallelSearch search = new ParallelSearch(chessMatch, threads)) {
+                    result = search.search(SearchLimits.time(timeMillis));
+                }
+            }
+            System.out.println(NAMES[i] + ": " + result + " per thread " + Arrays.toString(result.getThreadNodes()));
+        }
+    }
+    
+}
\ No newline at end of file
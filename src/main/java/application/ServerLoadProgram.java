@@ -0,0 +1,157 @@
+package application;
+
+import chess.server.GameClient;
+import chess.server.GameServer;
+import chess.server.LatencyHistogram;
+import chess.server.MatchJournal;
+import chess.server.MatchRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class ServerLoadProgram {
+    
+    // Knights out and back again: legal forever, so every match can keep moving for any number of rounds
+    private static final String[] SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+    
+    public static void main(String[] args) throws Exception {
+        
+        int matches = (args.length > 0) ? Integer.parseInt(args[0]) : 4000;
+        int connections = (args.length > 1) ? Integer.parseInt(args[1]) : 8;
+        int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 40;
+        int loops = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        // With a journal directory every answer waits for its group commit
+        MatchJournal journal = (args.length > 4) ? new MatchJournal(Path.of(args[4])) : null;
+        
+        try (GameServer server = new GameServer(0, new MatchRegistry(matches, 16 * Runtime.getRuntime().availableProcessors(), journal), loops)) {
+            server.start();
+            long before = usedMemory();
+            List<Client> clients = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                clients.add(new Client(server.getPort()));
+            }
+            for (int i = 0; i < matches; i++) {
+                clients.get(i % connections).create();
+            }
+            long perMatch = (usedMemory() - before) / matches;
+            
+            // An extra connection follows the first matches through incremental updates only
+            int watched = Math.min(matches, 100);
+            GameClient watcher = new GameClient(server.getPort());
+            for (int i = 0; i < watched; i++) {
+                watcher.watch(clients.get(i % connections).matches.get(i / connections));
+            }
+            
+            int expected = watched * rounds * SHUFFLE.length;
+            int[] updates = new int[1];
+            Thread follower = new Thread(() -> {
+                try {
+                    while (updates[0] < expected) {
+                        watcher.awaitUpdate();
+                        updates[0]++;
+                    }
+                } catch (IOException e) {
+                    throw new IllegalStateException("Watcher failed!", e);
+                }
+            }, "load-watcher");
+            follower.start();
+            
+            List<Thread> threads = new ArrayList<>();
+            long start = System.nanoTime();
+            for (Client client : clients) {
+                Thread thread = new Thread(() -> client.play(rounds), "load-client");
+                threads.add(thread);
+                thread.start();
+            }
+            LatencyHistogram roundTrips = new LatencyHistogram();
+            for (int i = 0; i < threads.size(); i++) {
+                threads.get(i).join();
+                roundTrips.add(clients.get(i).latencies);
+                clients.get(i).close();
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long moves = roundTrips.getCount();
+            
+            follower.join();
+            int inSync = 0;
+            for (int i = 0; i < watched; i++) {
+                long match = clients.get(i % connections).matches.get(i / connections);
+                if (String.valueOf(watcher.board(match)).equals(board(watcher.fen(match)))) {
+                    inSync++;
+                }
+            }
+            watcher.close();
+            
+            System.out.println(String.format(Locale.ROOT, "%d matches on %d connections and %d event loops, about %d bytes per match",
+                    server.getSessions(), connections, loops, perMatch));
+            System.out.println(String.format(Locale.ROOT, "%d moves in %.3f s, %.0f moves/s", moves, seconds, moves / seconds));
+            System.out.println("Round trip: " + roundTrips);
+            System.out.println(updates[0] + " updates pushed, " + inSync + " of " + watched + " watched boards match the server");
+            System.out.println("Move apply: " + server.getLatencies());
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+    
+    private static String board(String fen) {
+        StringBuilder sb = new StringBuilder();
+        for (char c : fen.substring(0, fen.indexOf(' ')).toCharArray()) {
+            if (c >= '1' && c <= '8') {
+                sb.append(String.valueOf(GameClient.EMPTY).repeat(c - '0'));
+            } else if (c != '/') {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+    
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    private static class Client {
+        
+        private GameClient client;
+        private List<Long> matches;
+        private LatencyHistogram latencies;
+        
+        private Client(int port) throws IOException {
+            this.client = new GameClient(port);
+            this.matches = new ArrayList<>();
+            this.latencies = new LatencyHistogram();
+        }
+        
+        private void create() throws IOException {
+            this.matches.add(this.client.newMatch());
+        }
+        
+        private void play(int rounds) {
+            try {
+                for (int ply = 0; ply < rounds * SHUFFLE.length; ply++) {
+                    for (long match : this.matches) {
+                        long start = System.nanoTime();
+                        this.client.move(match, SHUFFLE[ply % SHUFFLE.length]);
+                        this.latencies.record(System.nanoTime() - start);
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Load client failed!", e);
+            }
+        }
+        
+        private void close() throws IOException {
+            this.client.close();
+        }
+        
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.tablebase.Tablebase;
+import chess.tablebase.TablebaseGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+public class TablebaseProgram {
+    
+    private static final String[] DEFAULT_TABLES = {"KQK", "KRK", "KPK"};
+    
+    public static void main(String[] args) throws IOException {
+        
+        if (args.length >= 2 && args[0].equals("generate")) {
+            String[] names = (args.length > 2) ? Arrays.copyOfRange(args, 2, args.length) : DEFAULT_TABLES;
+            generate(Path.of(args[1]), names);
+        } else if (args.length >= 3 && args[0].equals("probe")) {
+            probe(Path.of(args[1]), args[2]);
+        } else {
+            System.out.println("Usage: TablebaseProgram generate <directory> [KQK KRK KPK KBNK KQKR KQKP ...] | probe <directory> <fen>");
+        }
+    }
+    
+    private static void generate(Path directory, String[] names) throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory)) {
+            TablebaseGenerator generator = new TablebaseGenerator(tablebase);
+            for (String name : names) {
+                long start = System.nanoTime();
+                long positions = generator.getPositions();
+                String table = generator.generate(name.toUpperCase(Locale.ROOT));
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.println(String.format(Locale.ROOT, "%s: %d positions solved in %.3f s", table,
+                        generator.getPositions() - positions, seconds));
+            }
+        }
+    }
+    
+    private static void probe(Path directory, String fen) throws IOException {
+        try (Tablebase tablebase = new Tablebase(directory)) {
+            ChessMatch chessMatch = new ChessMatch(fen);
+            int result = tablebase.probe(chessMatch);
+            int best = tablebase.bestMove(chessMatch, new MoveList());
+            System.out.println(chessMatch.getCurrentPlayer() + " to move: " + Tablebase.describe(result)
+                    + ", best " + (best == Move.NONE ? "none" : Move.toString(best)));
+            
+            int probes = 1_000_000;
+            long start = System.nanoTime();
+            for (int i = 0; i < probes; i++) {
+                tablebase.probe(chessMatch);
+            }
+            System.out.println(String.format(Locale.ROOT, "%.0f ns per probe", (System.nanoTime() - start) / (double) probes));
+        }
+    }
+    
+}
\ No newline at end of file
@@ -55,7 +55,9 @@ public class UserInterface {
         System.out.println();
         System.out.println("Turn: " + chessMatch.getTurn());
         
-        if (!chessMatch.getCheckMate()) {
+        if (chessMatch.getStaleMate()) {
+            System.out.println("STALEMATE!");
+        } else if (!chessMatch.getCheckMate()) {
             System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
             if (chessMatch.getCheck()) {
                 System.out.println("CHECK!");
@@ -89,6 +91,28 @@ public class UserInterface {
         System.out.println("  A B C D E F G H");
     }
     
+    // Board as sent by the game server: FEN letters, uppercase for CYAN, in the engine's square order
+    public static void printBoard(char[] squares, long highlighted) {
+        for (int i = 0; i < 8; i++) {
+            System.out.print((8 - i) + " ");
+            for (int j = 0; j < 8; j++) {
+                int square = i * 8 + j;
+                if ((highlighted & (1L << square)) != 0) {
+                    System.out.print(ANSI_BLUE_BACKGROUND);
+                }
+                char c = squares[square];
+                if (Character.isLetter(c)) {
+                    System.out.print((Character.isUpperCase(c) ? ANSI_CYAN : ANSI_YELLOW) + Character.toUpperCase(c) + ANSI_RESET);
+                } else {
+                    System.out.print("-" + ANSI_RESET);
+                }
+                System.out.print(" ");
+            }
+            System.out.println();
+        }
+        System.out.println("  A B C D E F G H");
+    }
+    
     private static void printPiece(ChessPiece piece) {
         if (piece == null) {
             System.out.print("-");
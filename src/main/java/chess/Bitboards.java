@@ -0,0 +1,224 @@
+package chess;
+
+public class Bitboards {
+    
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_B = FILE_A << 1;
+    public static final long FILE_G = FILE_A << 6;
+    public static final long FILE_H = FILE_A << 7;
+    public static final long RANK_8 = 0xFFL;
+    public static final long RANK_1 = RANK_8 << 56;
+    
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[Color.values().length][64];
+    
+    // Fancy magic bitboards: every square owns a slice of one shared table, indexed by
+    // ((occupied & mask) * magic) >>> shift; the magics were searched once for this square order
+    private static final long[] ROOK_MAGICS = {
+            0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+            0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+            0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+            0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+            0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+            0x9400808004000800L, 0x0090808004000200L, 0x0000040010810208L, 0x2000020000448534L,
+            0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+            0x0804080100110004L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+            0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x0080200A02001040L,
+            0x600D480280802400L, 0x400B800201800C00L, 0x2408211004004208L, 0x0200211082000844L,
+            0x0020804010208000L, 0x5030004020104000L, 0xA042084080220010L, 0x4088080010008080L,
+            0x5002080100110004L, 0x2012002010040400L, 0x0040318210440008L, 0x0120941040820001L,
+            0x1000800100402100L, 0x0040002010004840L, 0x8108450020001900L, 0x0200204008120200L,
+            0x0080800C00180180L, 0x0885000400420900L, 0x230802011008C400L, 0x3801740891432200L,
+            0x0A00250212024082L, 0x0000882040001105L, 0x0042102082000A42L, 0xC401210810000501L,
+            0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+    
+    private static final long[] BISHOP_MAGICS = {
+            0x1862221006220044L, 0x2104A14202020060L, 0x2804081220444001L, 0x2102408900010001L,
+            0x0002021000040002L, 0x08C3100805004300L, 0x1084040124920050L, 0x8900440043382010L,
+            0x2401410802140040L, 0x0901200454208020L, 0x0000090216020541L, 0x1283844040800804L,
+            0x0521840420000803L, 0x0800010402400C40L, 0x0000408E10100404L, 0x0009810048420800L,
+            0x2004211004286808L, 0x13080A1001380080L, 0x0008801004220020L, 0x0024000802480800L,
+            0x1461001190400401L, 0x0020400200500440L, 0x0003000409019000L, 0x000C20820D011802L,
+            0x000804002164100CL, 0x00048400A0011404L, 0x5018110308044100L, 0x0048A00804010020L,
+            0x0007840000802000L, 0x8808A20075004220L, 0x8014040000822100L, 0x110C03000E251101L,
+            0x0081094820202010L, 0x0008041000044100L, 0x00C1202808940800L, 0x8108100821040400L,
+            0x1240010010010041L, 0x0810004080011000L, 0x00A20C0401804A00L, 0x40014C0020050500L,
+            0x5805082012042480L, 0x2004022144031000L, 0x2082002024204808L, 0x0800004200800800L,
+            0x0410020204100A02L, 0x80C1204080804101L, 0x0010104E01800042L, 0x000800810C400208L,
+            0x100080B008201210L, 0x8000440605112101L, 0x000202008C440040L, 0x9004002210442200L,
+            0x2032014088222045L, 0x0C00202222C20000L, 0x0140040820A50100L, 0x0222104C29024018L,
+            0x0200110121202004L, 0x0800104200B00802L, 0x0000401424020801L, 0x4000000004208840L,
+            0x0802E00040104100L, 0x03000020A0424080L, 0x0011C00408188121L, 0x0848020822040013L
+    };
+    
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_ATTACKS = new long[102400];
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_ATTACKS = new long[5248];
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            long b = bit(square);
+            long l1 = (b >>> 1) & ~FILE_H;
+            long l2 = (b >>> 2) & ~(FILE_G | FILE_H);
+            long r1 = (b << 1) & ~FILE_A;
+            long r2 = (b << 2) & ~(FILE_A | FILE_B);
+            long h1 = l1 | r1;
+            long h2 = l2 | r2;
+            KNIGHT[square] = (h1 << 16) | (h1 >>> 16) | (h2 << 8) | (h2 >>> 8);
+            
+            long h = b | ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H);
+            KING[square] = (h | (h << 8) | (h >>> 8)) & ~b;
+            
+            PAWN[Color.CYAN.ordinal()][square] = ((b >>> 9) & ~FILE_H) | ((b >>> 7) & ~FILE_A);
+            PAWN[Color.YELLOW.ordinal()][square] = ((b << 7) & ~FILE_H) | ((b << 9) & ~FILE_A);
+        }
+        
+        int rookOffset = 0;
+        int bishopOffset = 0;
+        for (int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = relevantOccupancy(square, true);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_OFFSETS[square] = rookOffset;
+            fill(square, true, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square], ROOK_ATTACKS, rookOffset);
+            rookOffset += 1 << Long.bitCount(ROOK_MASKS[square]);
+            
+            BISHOP_MASKS[square] = relevantOccupancy(square, false);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_OFFSETS[square] = bishopOffset;
+            fill(square, false, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square], BISHOP_ATTACKS, bishopOffset);
+            bishopOffset += 1 << Long.bitCount(BISHOP_MASKS[square]);
+        }
+        
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                if (from == to) {
+                    continue;
+                }
+                if ((rookAttacks(from, 0L) & bit(to)) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, bit(to)) & rookAttacks(to, bit(from));
+                    LINE[from][to] = (rookAttacks(from, 0L) & rookAttacks(to, 0L)) | bit(from) | bit(to);
+                } else if ((bishopAttacks(from, 0L) & bit(to)) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, bit(to)) & bishopAttacks(to, bit(from));
+                    LINE[from][to] = (bishopAttacks(from, 0L) & bishopAttacks(to, 0L)) | bit(from) | bit(to);
+                }
+            }
+        }
+    }
+    
+    private Bitboards() {
+    }
+    
+    private static long relevantOccupancy(int square, boolean rook) {
+        // Edge squares never block anything behind them, so they are left out of the mask
+        long edges = ((RANK_8 | RANK_1) & ~(rook ? rankOf(square) : 0L)) | ((FILE_A | FILE_H) & ~(rook ? FILE_A << column(square) : 0L));
+        return sliderAttacks(square, 0L, rook) & ~edges;
+    }
+    
+    private static long rankOf(int square) {
+        return RANK_8 << (row(square) << 3);
+    }
+    
+    private static void fill(int square, boolean rook, long mask, long magic, int shift, long[] table, int offset) {
+        boolean[] used = new boolean[1 << Long.bitCount(mask)];
+        long subset = 0L;
+        do {
+            int index = (int) ((subset * magic) >>> shift);
+            long attacks = sliderAttacks(square, subset, rook);
+            if (used[index] && table[offset + index] != attacks) {
+                throw new IllegalStateException("Bad magic for square " + square + "!");
+            }
+            used[index] = true;
+            table[offset + index] = attacks;
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+    }
+    
+    public static long bit(int square) {
+        return 1L << square;
+    }
+    
+    public static int row(int square) {
+        return square >>> 3;
+    }
+    
+    public static int column(int square) {
+        return square & 7;
+    }
+    
+    public static boolean[][] toMatrix(long mask) {
+        boolean[][] mat = new boolean[8][8];
+        while (mask != 0) {
+            int square = Long.numberOfTrailingZeros(mask);
+            mat[row(square)][column(square)] = true;
+            mask &= mask - 1;
+        }
+        return mat;
+    }
+    
+    public static long knightAttacks(int square) {
+        return KNIGHT[square];
+    }
+    
+    public static long kingAttacks(int square) {
+        return KING[square];
+    }
+    
+    public static long pawnAttacks(Color color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+    
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_ATTACKS[ROOK_OFFSETS[square] + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+    
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_ATTACKS[BISHOP_OFFSETS[square] + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+    
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+    
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+    
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+    
+    private static long sliderAttacks(int square, long occupied, boolean rook) {
+        if (rook) {
+            return slide(square, occupied, -1, 0) | slide(square, occupied, 1, 0)
+                    | slide(square, occupied, 0, -1) | slide(square, occupied, 0, 1);
+        }
+        return slide(square, occupied, -1, -1) | slide(square, occupied, -1, 1)
+                | slide(square, occupied, 1, -1) | slide(square, occupied, 1, 1);
+    }
+    
+    private static long slide(int square, long occupied, int rowStep, int columnStep) {
+        long attacks = 0L;
+        int row = row(square) + rowStep;
+        int column = column(square) + columnStep;
+        while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+            long b = bit((row << 3) | column);
+            attacks |= b;
+            if ((occupied & b) != 0) {
+                break;
+            }
+            row += rowStep;
+            column += columnStep;
+        }
+        return attacks;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.BoardException;
+import boardgame.Piece;
+import boardgame.Position;
+
+public class ChessBoard extends Board {
+    
+    private static final Position[] POSITIONS = new Position[64];
+    
+    static {
+        for (int square = 0; square < 64; square++) {
+            POSITIONS[square] = new Position(Bitboards.row(square), Bitboards.column(square));
+        }
+    }
+    
+    private ChessPiece[] squares;
+    private long[][] bitboards;
+    private long[] occupancy;
+    private long key;
+    private long pawnKey;
+    private int[] middlegame;
+    private int[] endgame;
+    private int phase;
+    
+    public ChessBoard() {
+        super(8, 8);
+        this.squares = new ChessPiece[64];
+        this.bitboards = new long[Color.values().length][PieceType.values().length];
+        this.occupancy = new long[Color.values().length];
+        this.middlegame = new int[Color.values().length];
+        this.endgame = new int[Color.values().length];
+    }
+    
+    public static int square(int row, int column) {
+        return (row << 3) | column;
+    }
+    
+    public static int square(Position position) {
+        return square(position.getRow(), position.getColumn());
+    }
+    
+    public static Position position(int square) {
+        return POSITIONS[square];
+    }
+    
+    @Override
+    public Piece piece(int row, int column) {
+        if (row < 0 || row >= 8 || column < 0 || column >= 8) {
+            throw new BoardException("Position not on the board!");
+        }
+        return squares[square(row, column)];
+    }
+    
+    @Override
+    public Piece piece(Position position) {
+        return piece(position.getRow(), position.getColumn());
+    }
+    
+    public ChessPiece piece(int square) {
+        return squares[square];
+    }
+    
+    @Override
+    public void placePiece(Piece piece, Position position) {
+        if (thereIsAPiece(position)) {
+            throw new BoardException("There is already a piece on position " + position);
+        }
+        placePiece((ChessPiece) piece, square(position));
+    }
+    
+    public void placePiece(ChessPiece piece, int square) {
+        long b = Bitboards.bit(square);
+        int color = piece.getColor().ordinal();
+        squares[square] = piece;
+        bitboards[color][piece.getType().ordinal()] |= b;
+        occupancy[color] |= b;
+        key ^= Zobrist.piece(piece.getColor(), piece.getType(), square);
+        if (piece.getType() == PieceType.PAWN) {
+            pawnKey ^= Zobrist.piece(piece.getColor(), PieceType.PAWN, square);
+        }
+        middlegame[color] += PieceSquareTables.middlegame(piece.getColor(), piece.getType(), square);
+        endgame[color] += PieceSquareTables.endgame(piece.getColor(), piece.getType(), square);
+        phase += PieceSquareTables.phase(piece.getType());
+        piece.setPosition(POSITIONS[square]);
+    }
+    
+    @Override
+    public Piece removePiece(Position position) {
+        if (!positionExists(position)) {
+            throw new BoardException("Position not on the board!");
+        }
+        return removePiece(square(position));
+    }
+    
+    public ChessPiece removePiece(int square) {
+        ChessPiece piece = squares[square];
+        if (piece == null) {
+            return null;
+        }
+        long b = Bitboards.bit(square);
+        int color = piece.getColor().ordinal();
+        squares[square] = null;
+        bitboards[color][piece.getType().ordinal()] &= ~b;
+        occupancy[color] &= ~b;
+        key ^= Zobrist.piece(piece.getColor(), piece.getType(), square);
+        if (piece.getType() == PieceType.PAWN) {
+            pawnKey ^= Zobrist.piece(piece.getColor(), PieceType.PAWN, square);
+        }
+        middlegame[color] -= PieceSquareTables.middlegame(piece.getColor(), piece.getType(), square);
+        endgame[color] -= PieceSquareTables.endgame(piece.getColor(), piece.getType(), square);
+        phase -= PieceSquareTables.phase(piece.getType());
+        return piece;
+    }
+    
+    @Override
+    public boolean thereIsAPiece(Position position) {
+        return piece(position) != null;
+    }
+    
+    public long pieces(Color color, PieceType type) {
+        return bitboards[color.ordinal()][type.ordinal()];
+    }
+    
+    public long occupancy(Color color) {
+        return occupancy[color.ordinal()];
+    }
+    
+    public long occupancy() {
+        return occupancy[0] | occupancy[1];
+    }
+    
+    public long getKey() {
+        return key;
+    }
+    
+    public long getPawnKey() {
+        return pawnKey;
+    }
+    
+    public int getMiddlegame(Color color) {
+        return middlegame[color.ordinal()];
+    }
+    
+    public int getEndgame(Color color) {
+        return endgame[color.ordinal()];
+    }
+    
+    public int getPhase() {
+        return phase;
+    }
+    
+    public int kingSquare(Color color) {
+        return Long.numberOfTrailingZeros(pieces(color, PieceType.KING));
+    }
+    
+    public long attackersTo(int square, Color color) {
+        return attackersTo(square, color, occupancy());
+    }
+    
+    public long attackersTo(int square, Color color, long occupied) {
+        long[] sets = bitboards[color.ordinal()];
+        long queens = sets[PieceType.QUEEN.ordinal()];
+        Color defender = (color == Color.CYAN) ? Color.YELLOW : Color.CYAN;
+        return (Bitboards.pawnAttacks(defender, square) & sets[PieceType.PAWN.ordinal()])
+                | (Bitboards.knightAttacks(square) & sets[PieceType.KNIGHT.ordinal()])
+                | (Bitboards.kingAttacks(square) & sets[PieceType.KING.ordinal()])
+                | (Bitboards.bishopAttacks(square, occupied) & (sets[PieceType.BISHOP.ordinal()] | queens))
+                | (Bitboards.rookAttacks(square, occupied) & (sets[PieceType.ROOK.ordinal()] | queens));
+    }
+    
+    public boolean isAttacked(int square, Color color) {
+        return attackersTo(square, color) != 0;
+    }
+    
+}
\ No newline at end of file
@@ -1,34 +1,88 @@
 package chess;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
 import chess.pieces.*;
 
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class ChessMatch {
     
+    public static final String INITIAL_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // Largest state toBinary can write: 32 pieces that all moved and 30 captured ones
+    public static final int MAX_BINARY_SIZE = 224;
+    
+    static final int CYAN_KINGSIDE = 1;
+    static final int CYAN_QUEENSIDE = 2;
+    static final int YELLOW_KINGSIDE = 4;
+    static final int YELLOW_QUEENSIDE = 8;
+    
+    private static final int VERDICT_CHECK = 1;
+    private static final int VERDICT_CHECKMATE = 2;
+    private static final int VERDICT_STALEMATE = 4;
+    private static final TranspositionTable SHARED_CACHE = new TranspositionTable(1 << 16, TranspositionTable.ReplacementPolicy.OLDEST_STORED);
+    
     private int turn;
     private Color currentPlayer;
-    private Board board;
+    private ChessBoard board;
     private boolean check;
     private boolean checkMate;
+    private boolean staleMate;
     private ChessPiece enPassantVunerable;
     private ChessPiece promoted;
+    private int castlingRights;
+    private int enPassantColumn;
+    private int halfMoveClock;
+    private long key;
+    private TranspositionTable cache;
+    private volatile PositionSnapshot snapshot;
+    private PawnCache pawnCache;
+    private long pinned;
+    private long checkMask;
     
     private List<Piece> piecesOnTheBoard;
     private List<Piece> capturedPieces;
+    private MoveRecord[] history;
+    private int historySize;
+    private long[] played;
+    private int playedSize;
     
     public ChessMatch() {
+        this(SHARED_CACHE);
+    }
+    
+    public ChessMatch(TranspositionTable cache) {
+        this.cache = cache;
         this.piecesOnTheBoard = new ArrayList<>();
         this.capturedPieces = new ArrayList<>();
+        this.history = new MoveRecord[64];
+        this.played = new long[8];
         this.turn = 1;
         this.currentPlayer = Color.CYAN;
-        this.board = new Board(8, 8);
+        this.board = new ChessBoard();
         this.initialSetup();
+        this.enPassantColumn = -1;
+        this.updateKey();
+        this.publish();
+        this.recordPosition();
+    }
+    
+    public ChessMatch(String fen) {
+        this(fen, SHARED_CACHE);
+    }
+    
+    public ChessMatch(String fen, TranspositionTable cache) {
+        this.cache = cache;
+        this.piecesOnTheBoard = new ArrayList<>();
+        this.capturedPieces = new ArrayList<>();
+        this.history = new MoveRecord[64];
+        this.played = new long[8];
+        this.board = new ChessBoard();
+        this.loadFen(fen);
     }
     
     public int getTurn() {
@@ -47,6 +101,10 @@ public class ChessMatch {
         return this.checkMate;
     }
     
+    public boolean getStaleMate() {
+        return this.staleMate;
+    }
+    
     public ChessPiece getEnPassantVunerable() {
         return this.enPassantVunerable;
     }
@@ -55,9 +113,80 @@ public class ChessMatch {
         return this.promoted;
     }
     
+    public int getHalfMoveClock() {
+        return this.halfMoveClock;
+    }
+    
+    public int getCastlingRights() {
+        return this.castlingRights;
+    }
+    
+    public long getKey() {
+        return this.board.getKey() ^ this.key;
+    }
+    
+    public TranspositionTable getCache() {
+        return this.cache;
+    }
+    
+    // A copy, since the cache refills its entries in place and callers compare structures across moves
+    public PawnStructure getPawnStructure() {
+        if (this.pawnCache == null) {
+            this.pawnCache = new PawnCache(1 << 8);
+        }
+        return this.pawnCache.get(this.board).copy();
+    }
+    
+    public PositionSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+    
+    public ChessBoard getBoard() {
+        return this.board;
+    }
+    
     private void nextTurn() {
         this.turn++;
         this.currentPlayer = currentPlayer == (Color.CYAN) ? Color.YELLOW : Color.CYAN;
+        this.key ^= Zobrist.side();
+    }
+    
+    private void updateKey() {
+        int rights = castlingRights();
+        this.key ^= Zobrist.castling(this.castlingRights) ^ Zobrist.castling(rights);
+        this.castlingRights = rights;
+        
+        int column = enPassantColumn();
+        this.key ^= Zobrist.enPassant(this.enPassantColumn) ^ Zobrist.enPassant(column);
+        this.enPassantColumn = column;
+    }
+    
+    private int castlingRights() {
+        int rights = 0;
+        if (canCastle(60, 63)) rights |= CYAN_KINGSIDE;
+        if (canCastle(60, 56)) rights |= CYAN_QUEENSIDE;
+        if (canCastle(4, 7)) rights |= YELLOW_KINGSIDE;
+        if (canCastle(4, 0)) rights |= YELLOW_QUEENSIDE;
+        return rights;
+    }
+    
+    private boolean canCastle(int kingSquare, int rookSquare) {
+        ChessPiece king = this.board.piece(kingSquare);
+        ChessPiece rook = this.board.piece(rookSquare);
+        return king instanceof King && king.getMoveCount() == 0
+                && rook instanceof Rook && rook.getMoveCount() == 0 && rook.getColor() == king.getColor();
+    }
+    
+    private int enPassantColumn() {
+        if (this.enPassantVunerable == null) {
+            return -1;
+        }
+        int square = this.enPassantVunerable.getSquare();
+        long adjacent = ((Bitboards.bit(square) << 1) & ~Bitboards.FILE_A) | ((Bitboards.bit(square) >>> 1) & ~Bitboards.FILE_H);
+        if ((adjacent & this.board.pieces(opponent(this.enPassantVunerable.getColor()), PieceType.PAWN)) == 0) {
+            return -1;
+        }
+        return Bitboards.column(square);
     }
     
     public ChessPiece[][] getPieces() {
@@ -65,7 +194,7 @@ public class ChessMatch {
         ChessPiece[][] mat = new ChessPiece[this.board.getRows()][this.board.getColumns()];
         for (int i = 0; i < this.board.getRows(); i++) {
             for (int j = 0; j < this.board.getColumns(); j++) {
-                mat[i][j] = (ChessPiece) this.board.piece(i, j);
+                mat[i][j] = this.board.piece(ChessBoard.square(i, j));
             }
         }
         return mat;
@@ -87,12 +216,23 @@ public class ChessMatch {
         if (!this.board.piece(source).possibleMove(target)) {
             throw new ChessException("The chosen piece can't move to target position!");
         }
+        // The pin and check filter decides, so no trial move is needed
+        if ((legalMovesMask(ChessBoard.square(source)) & Bitboards.bit(ChessBoard.square(target))) == 0) {
+            throw new ChessException("You can't put yourself in check!");
+        }
     }
     
-    private Piece makeMove(Position source, Position target) {
-        ChessPiece p = (ChessPiece) this.board.removePiece(source);
+    // Throws the same ChessException performChessMovie would, without changing the match
+    public void validateMove(int move) {
+        Position source = ChessBoard.position(Move.source(move));
+        this.validateSourcePosition(source);
+        this.validateTargetPosition(source, ChessBoard.position(Move.target(move)));
+    }
+    
+    private ChessPiece makeMove(int source, int target) {
+        ChessPiece p = this.board.removePiece(source);
         p.increaseMoveCount();
-        Piece capturedPiece = this.board.removePiece(target);
+        ChessPiece capturedPiece = this.board.removePiece(target);
         if (capturedPiece != null) {
             this.piecesOnTheBoard.remove(capturedPiece);
             this.capturedPieces.add(capturedPiece);
@@ -100,33 +240,24 @@ public class ChessMatch {
         this.board.placePiece(p, target);
         
         // #SpecialMove Castling Kingside Rook
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
+        if (p instanceof King && target == source + 2) {
+            ChessPiece rook = board.removePiece(source + 3);
+            board.placePiece(rook, source + 1);
             rook.increaseMoveCount();
         }
         
         // #SpecialMove Castling Queenside Rook
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(sourceT);
-            board.placePiece(rook, targetT);
+        if (p instanceof King && target == source - 2) {
+            ChessPiece rook = board.removePiece(source - 4);
+            board.placePiece(rook, source - 1);
             rook.increaseMoveCount();
         }
         
         // #SpecialMove enPassant
         if (p instanceof Pawn) {
-            if (source.getColumn() != target.getColumn() && capturedPiece == null) {
-                Position pawnPosition;
-                if (p.getColor() == Color.CYAN) {
-                    pawnPosition = new Position(target.getRow() + 1, target.getColumn());
-                } else {
-                    pawnPosition = new Position(target.getRow() - 1, target.getColumn());
-                }
-                capturedPiece = board.removePiece(pawnPosition);
+            if (Bitboards.column(source) != Bitboards.column(target) && capturedPiece == null) {
+                int pawnSquare = (p.getColor() == Color.CYAN) ? target + 8 : target - 8;
+                capturedPiece = board.removePiece(pawnSquare);
                 capturedPieces.add(capturedPiece);
                 piecesOnTheBoard.remove(capturedPiece);
             }
@@ -135,123 +266,321 @@ public class ChessMatch {
         return capturedPiece;
     }
     
-    private void undoMove(Position source, Position target, Piece capturedPiece) {
-        ChessPiece p = (ChessPiece) this.board.removePiece(target);
+    private void undoMove(int source, int target, ChessPiece capturedPiece) {
+        ChessPiece p = this.board.removePiece(target);
         p.decreaseMoveCount();
         this.board.placePiece(p, source);
         
+        // #SpecialMove enPassant restores the pawn on its own square, not on the target
         if (capturedPiece != null) {
-            this.board.placePiece(capturedPiece, target);
+            this.board.placePiece(capturedPiece, capturedPiece.getSquare());
             this.capturedPieces.remove(capturedPiece);
             this.piecesOnTheBoard.add(capturedPiece);
         }
         
         // #SpecialMove Castling Kingside Rook
-        if (p instanceof King && target.getColumn() == source.getColumn() + 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-            Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
+        if (p instanceof King && target == source + 2) {
+            ChessPiece rook = board.removePiece(source + 1);
+            board.placePiece(rook, source + 3);
             rook.decreaseMoveCount();
         }
         
         // #SpecialMove Castling Queenside Rook
-        if (p instanceof King && target.getColumn() == source.getColumn() - 2) {
-            Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-            Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-            ChessPiece rook = (ChessPiece) board.removePiece(targetT);
-            board.placePiece(rook, sourceT);
+        if (p instanceof King && target == source - 2) {
+            ChessPiece rook = board.removePiece(source - 1);
+            board.placePiece(rook, source - 4);
             rook.decreaseMoveCount();
         }
         
-        // #SpecialMove enPassant
-        if (p instanceof Pawn) {
-            if ((source.getColumn() != target.getColumn()) && capturedPiece == enPassantVunerable) {
-                ChessPiece pawn = (ChessPiece) board.removePiece(target);
-                Position pawnPosition;
-                if (p.getColor() == Color.CYAN) {
-                    pawnPosition = new Position(3, target.getColumn());
+    }
+    
+    public void legalMoves(MoveList moves) {
+        moves.clear();
+        preparePins(this.currentPlayer);
+        long own = this.board.occupancy(this.currentPlayer);
+        while (own != 0) {
+            int source = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            ChessPiece p = this.board.piece(source);
+            long targets = legalTargets(source, this.currentPlayer);
+            while (targets != 0) {
+                int target = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (p instanceof Pawn && (Bitboards.row(target) == 0 || Bitboards.row(target) == 7)) {
+                    moves.add(Move.of(source, target, PieceType.QUEEN));
+                    moves.add(Move.of(source, target, PieceType.ROOK));
+                    moves.add(Move.of(source, target, PieceType.BISHOP));
+                    moves.add(Move.of(source, target, PieceType.KNIGHT));
                 } else {
-                    pawnPosition = new Position(4, target.getColumn());
+                    moves.add(Move.of(source, target));
+                }
+            }
+        }
+    }
+    
+    // Pinned pieces and the check evasion mask are computed once per position, so only
+    // king moves and en passant still need a test of their own
+    private void preparePins(Color color) {
+        Color enemy = opponent(color);
+        int king = kingSquare(color);
+        long occupied = this.board.occupancy();
+        long queens = this.board.pieces(enemy, PieceType.QUEEN);
+        long snipers = (Bitboards.rookAttacks(king, this.board.occupancy(enemy)) & (this.board.pieces(enemy, PieceType.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, this.board.occupancy(enemy)) & (this.board.pieces(enemy, PieceType.BISHOP) | queens));
+        this.pinned = 0L;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Bitboards.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) {
+                this.pinned |= blockers & this.board.occupancy(color);
+            }
+        }
+        
+        long checkers = this.board.attackersTo(king, enemy);
+        if (checkers == 0) {
+            this.checkMask = -1L;
+        } else if (Long.bitCount(checkers) == 1) {
+            this.checkMask = checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+        } else {
+            this.checkMask = 0L;
+        }
+    }
+    
+    private long legalTargets(int source, Color color) {
+        ChessPiece p = this.board.piece(source);
+        long targets = p.possibleMovesMask();
+        
+        if (p instanceof King) {
+            long legal = 0L;
+            long occupied = this.board.occupancy() & ~Bitboards.bit(source);
+            while (targets != 0) {
+                int target = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (this.board.attackersTo(target, opponent(color), occupied) == 0) {
+                    legal |= Bitboards.bit(target);
                 }
-                board.placePiece(pawn, pawnPosition);
             }
+            return legal;
         }
         
+        long legal = 0L;
+        // #SpecialMove enPassant removes two pawns from one rank, so it keeps the trial move
+        if (p instanceof Pawn) {
+            long enPassant = targets & ~this.board.occupancy() & ~(Bitboards.FILE_A << Bitboards.column(source));
+            targets &= ~enPassant;
+            if (enPassant != 0 && isLegal(source, Long.numberOfTrailingZeros(enPassant), color)) {
+                legal = enPassant;
+            }
+        }
+        targets &= this.checkMask;
+        if ((this.pinned & Bitboards.bit(source)) != 0) {
+            targets &= Bitboards.line(kingSquare(color), source);
+        }
+        return legal | targets;
+    }
+    
+    public boolean isLegalMove(int move) {
+        ChessPiece p = this.board.piece(Move.source(move));
+        int target = Move.target(move);
+        return !this.checkMate && p != null && p.getColor() == this.currentPlayer
+                && (p.possibleMovesMask() & Bitboards.bit(target)) != 0 && isLegal(Move.source(move), target, this.currentPlayer);
+    }
+    
+    boolean isLegal(int source, int target, Color color) {
+        ChessPiece capturedPiece = makeMove(source, target);
+        boolean legal = !testCheck(color);
+        undoMove(source, target, capturedPiece);
+        return legal;
     }
     
     public boolean[][] possibleMoves(ChessPosition sourcePosition) {
         Position position = sourcePosition.toPosition();
         validateSourcePosition(position);
-        return this.board.piece(position).possibleMoves();
+        return Bitboards.toMatrix(legalMovesMask(ChessBoard.square(position)));
+    }
+    
+    private long legalMovesMask(int source) {
+        long cacheKey = getKey() ^ Zobrist.query(source);
+        long mask = this.cache.get(cacheKey);
+        if (mask == TranspositionTable.MISSING) {
+            preparePins(this.currentPlayer);
+            mask = legalTargets(source, this.currentPlayer);
+            this.cache.put(cacheKey, mask);
+        }
+        return mask;
     }
     
     public ChessPiece performChessMovie(ChessPosition sourcePosition, ChessPosition targetPosition) {
-        Position source = sourcePosition.toPosition();
-        Position target = targetPosition.toPosition();
+        return performChessMovie(sourcePosition.toPosition(), targetPosition.toPosition(), "Q");
+    }
+    
+    public ChessPiece performChessMovie(int move) {
+        PieceType promotion = Move.promotion(move);
+        String type = (promotion == null) ? "Q" : String.valueOf("PNBRQK".charAt(promotion.ordinal()));
+        return performChessMovie(ChessBoard.position(Move.source(move)), ChessBoard.position(Move.target(move)), type);
+    }
+    
+    private ChessPiece performChessMovie(Position source, Position target, String promotionType) {
         this.validateSourcePosition(source);
         this.validateTargetPosition(source, target);
-        Piece capturedPiece = this.makeMove(source, target);
-        
-        if (this.testCheck(this.currentPlayer)) {
-            undoMove(source, target, capturedPiece);
-            throw new ChessException("You can't put yourself in check!");
-        }
+        Piece capturedPiece = this.makeMove(ChessBoard.square(source), ChessBoard.square(target));
         
         ChessPiece movedPiece = (ChessPiece) board.piece(target);
+        this.halfMoveClock = (movedPiece instanceof Pawn || capturedPiece != null) ? 0 : this.halfMoveClock + 1;
         
         // #SpecialMove Promotion
         this.promoted = null;
         if (movedPiece instanceof Pawn) {
             if ((movedPiece.getColor() == Color.CYAN && target.getRow() == 0) || (movedPiece.getColor() == Color.YELLOW && target.getRow() == 7)) {
                 this.promoted = (ChessPiece) board.piece(target);
-                this.promoted = replacePromotedPiece("Q");
+                this.promoted = promote(promotionType);
             }
         }
         
+        // #SpecialMove enPassant
+        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)) {
+            enPassantVunerable = movedPiece;
+        } else {
+            enPassantVunerable = null;
+        }
+        this.updateKey();
+        
         this.check = this.testCheck(opponent(currentPlayer));
+        int verdict = this.verdict(opponent(currentPlayer));
         
-        if (testCheckMate(opponent(currentPlayer))) {
+        if ((verdict & VERDICT_CHECKMATE) != 0) {
             checkMate = true;
         } else {
+            this.staleMate = (verdict & VERDICT_STALEMATE) != 0;
             this.nextTurn();
         }
+        this.publish();
+        if (this.halfMoveClock == 0) {
+            this.playedSize = 0;
+        }
+        this.recordPosition();
+        
+        return (ChessPiece) capturedPiece;
+    }
+    
+    public void playMove(int move) {
+        int source = Move.source(move);
+        int target = Move.target(move);
+        MoveRecord record = pushRecord();
+        record.move = move;
+        record.enPassantVunerable = this.enPassantVunerable;
+        record.check = this.check;
+        record.castlingRights = this.castlingRights;
+        record.enPassantColumn = this.enPassantColumn;
+        record.halfMoveClock = this.halfMoveClock;
+        record.key = this.key;
+        
+        ChessPiece p = this.board.piece(source);
+        record.capturedPiece = this.makeMove(source, target);
+        record.pawn = null;
+        this.halfMoveClock = (p instanceof Pawn || record.capturedPiece != null) ? 0 : this.halfMoveClock + 1;
+        
+        // #SpecialMove Promotion
+        PieceType promotion = Move.promotion(move);
+        if (promotion != null) {
+            record.pawn = p;
+            this.board.removePiece(target);
+            this.piecesOnTheBoard.remove(p);
+            ChessPiece newPiece = newPiece(promotion, p.getColor());
+            this.board.placePiece(newPiece, target);
+            this.piecesOnTheBoard.add(newPiece);
+        }
         
         // #SpecialMove enPassant
-        if (movedPiece instanceof Pawn && (target.getRow() == source.getRow() - 2 || target.getRow() == source.getRow() + 2)) {
-            enPassantVunerable = movedPiece;
+        this.enPassantVunerable = (p instanceof Pawn && Math.abs(target - source) == 16) ? p : null;
+        this.updateKey();
+        this.nextTurn();
+        this.check = this.testCheck(this.currentPlayer);
+    }
+    
+    public void undoLastMove() {
+        if (this.historySize == 0) {
+            throw new IllegalStateException("There is no move to undo!");
         }
+        MoveRecord record = this.history[--this.historySize];
+        int source = Move.source(record.move);
+        int target = Move.target(record.move);
         
-        return (ChessPiece) capturedPiece;
+        // #SpecialMove Promotion
+        if (record.pawn != null) {
+            ChessPiece newPiece = this.board.removePiece(target);
+            this.piecesOnTheBoard.remove(newPiece);
+            this.board.placePiece(record.pawn, target);
+            this.piecesOnTheBoard.add(record.pawn);
+        }
+        this.undoMove(source, target, record.capturedPiece);
+        
+        this.turn--;
+        this.currentPlayer = opponent(this.currentPlayer);
+        this.enPassantVunerable = record.enPassantVunerable;
+        this.check = record.check;
+        this.castlingRights = record.castlingRights;
+        this.enPassantColumn = record.enPassantColumn;
+        this.halfMoveClock = record.halfMoveClock;
+        this.key = record.key;
+    }
+    
+    private MoveRecord pushRecord() {
+        if (this.historySize == this.history.length) {
+            this.history = Arrays.copyOf(this.history, this.history.length * 2);
+        }
+        MoveRecord record = this.history[this.historySize];
+        if (record == null) {
+            record = new MoveRecord();
+            this.history[this.historySize] = record;
+        }
+        this.historySize++;
+        return record;
+    }
+    
+    // Trial moves from playMove/undoLastMove are never published, only committed ones
+    private void publish() {
+        this.snapshot = PositionSnapshot.of(this.board, this.currentPlayer, this.turn, this.castlingRights, this.enPassantColumn,
+                this.halfMoveClock, this.check, this.checkMate, this.staleMate, getKey());
+    }
+    
+    // Committed positions are kept back to the last capture or pawn move, the only ones a later position can repeat
+    private void recordPosition() {
+        if (this.playedSize == this.played.length) {
+            this.played = Arrays.copyOf(this.played, this.played.length * 2);
+        }
+        this.played[this.playedSize++] = getKey();
+    }
+    
+    // Keys of the committed positions that can still be repeated, oldest first and the current one last
+    public long[] getPlayedKeys() {
+        return Arrays.copyOf(this.played, this.playedSize);
     }
     
     private Color opponent(Color color) {
         return (color == Color.CYAN) ? Color.YELLOW : Color.CYAN;
     }
     
-    private ChessPiece king(Color color) {
-        List<Piece> list = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if (p instanceof King) {
-                return (ChessPiece) p;
-            }
+    private int kingSquare(Color color) {
+        if (this.board.pieces(color, PieceType.KING) == 0) {
+            throw new IllegalStateException("There is no " + color + " king on the board!");
         }
-        throw new IllegalStateException("There is no " + color + " king on the board!");
+        return this.board.kingSquare(color);
     }
     
-    private boolean testCheck(Color color) {
-        Position kingPosition = king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == opponent(color)).collect(Collectors.toList());
-        for (Piece p : opponentPieces) {
-            boolean[][] mat = p.possibleMoves();
-            if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
-                return true;
-            }
-        }
-        return false;
+    boolean testCheck(Color color) {
+        return this.board.isAttacked(kingSquare(color), opponent(color));
     }
     
     public ChessPiece replacePromotedPiece(String type) {
+        ChessPiece newPiece = promote(type);
+        this.publish();
+        this.played[this.playedSize - 1] = getKey();
+        return newPiece;
+    }
+    
+    private ChessPiece promote(String type) {
         if (this.promoted == null) {
             throw new IllegalStateException("There is no piece to be promoted!");
         }
@@ -271,6 +600,15 @@ public class ChessMatch {
         
     }
     
+    private ChessPiece newPiece(PieceType type, Color color) {
+        if (type == PieceType.PAWN) return new Pawn(board, color, this);
+        if (type == PieceType.KING) return new King(board, color, this);
+        if (type == PieceType.BISHOP) return new Bishop(board, color);
+        if (type == PieceType.KNIGHT) return new Knight(board, color);
+        if (type == PieceType.ROOK) return new Rook(board, color);
+        return new Queen(board, color);
+    }
+    
     private ChessPiece newPiece(String type, Color color) {
         if (type.equals("B")) return new Bishop(board, color);
         if (type.equals("N")) return new Knight(board, color);
@@ -278,29 +616,408 @@ public class ChessMatch {
         return new Queen(board, color);
     }
     
-    private boolean testCheckMate(Color color) {
-        if (!testCheck(color)) {
-            return false;
-        }
-        List<Piece> list = this.piecesOnTheBoard.stream().filter(x -> ((ChessPiece) x).getColor() == color).collect(Collectors.toList());
-        for (Piece p : list) {
-            boolean[][] mat = p.possibleMoves();
-            for (int i = 0; i < this.board.getRows(); i++) {
-                for (int j = 0; j < this.board.getColumns(); j++) {
-                    if ((mat[i][j])) {
-                        Position source = ((ChessPiece) p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean testCheck = this.testCheck(color);
-                        undoMove(source, target, capturedPiece);
-                        if (!testCheck) {
-                            return false;
-                        }
-                    }
+    private int verdict(Color color) {
+        long cacheKey = getKey() ^ Zobrist.query(64);
+        if (color != this.currentPlayer) {
+            cacheKey ^= Zobrist.side();
+        }
+        long verdict = this.cache.get(cacheKey);
+        if (verdict == TranspositionTable.MISSING) {
+            boolean check = testCheck(color);
+            boolean anyMove = hasAnyLegalMove(color);
+            verdict = (check ? VERDICT_CHECK : 0) | (anyMove ? 0 : (check ? VERDICT_CHECKMATE : VERDICT_STALEMATE));
+            this.cache.put(cacheKey, verdict);
+        }
+        return (int) verdict;
+    }
+    
+    boolean hasAnyLegalMove(Color color) {
+        preparePins(color);
+        // The king goes first: under double check it is the only piece that can move
+        if (legalTargets(kingSquare(color), color) != 0) {
+            return true;
+        }
+        long pieces = this.board.occupancy(color) & ~this.board.pieces(color, PieceType.KING);
+        while (pieces != 0) {
+            int source = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            if (legalTargets(source, color) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public void loadFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 4) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        
+        for (int square = 0; square < 64; square++) {
+            this.board.removePiece(square);
+        }
+        this.piecesOnTheBoard.clear();
+        this.capturedPieces.clear();
+        this.historySize = 0;
+        this.playedSize = 0;
+        this.check = false;
+        this.checkMate = false;
+        this.staleMate = false;
+        this.promoted = null;
+        this.enPassantVunerable = null;
+        
+        int row = 0;
+        int column = 0;
+        for (char c : fields[0].toCharArray()) {
+            if (c == '/') {
+                row++;
+                column = 0;
+            } else if (c >= '1' && c <= '8') {
+                column += c - '0';
+            } else {
+                int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+                if (type < 0 || row > 7 || column > 7) {
+                    throw new ChessException("Invalid FEN: " + fen);
+                }
+                Color color = Character.isUpperCase(c) ? Color.CYAN : Color.YELLOW;
+                ChessPiece piece = newPiece(PieceType.values()[type], color);
+                this.board.placePiece(piece, ChessBoard.square(row, column));
+                this.piecesOnTheBoard.add(piece);
+                column++;
+            }
+        }
+        if (Long.bitCount(this.board.pieces(Color.CYAN, PieceType.KING)) != 1 || Long.bitCount(this.board.pieces(Color.YELLOW, PieceType.KING)) != 1) {
+            throw new ChessException("Invalid FEN: there must be exactly one king of each color!");
+        }
+        
+        if (!fields[1].equals("w") && !fields[1].equals("b")) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        this.currentPlayer = fields[1].equals("w") ? Color.CYAN : Color.YELLOW;
+        
+        // #SpecialMove Castling rights are kept as unmoved kings and rooks
+        for (Piece p : this.piecesOnTheBoard) {
+            ChessPiece piece = (ChessPiece) p;
+            int square = piece.getSquare();
+            boolean unmoved;
+            if (piece instanceof Pawn) {
+                unmoved = Bitboards.row(square) == (piece.getColor() == Color.CYAN ? 6 : 1);
+            } else if (piece instanceof King) {
+                unmoved = square == (piece.getColor() == Color.CYAN ? 60 : 4) && (fields[2].indexOf(piece.getColor() == Color.CYAN ? 'K' : 'k') >= 0
+                        || fields[2].indexOf(piece.getColor() == Color.CYAN ? 'Q' : 'q') >= 0);
+            } else if (piece instanceof Rook) {
+                unmoved = (square == 63 && fields[2].indexOf('K') >= 0) || (square == 56 && fields[2].indexOf('Q') >= 0)
+                        || (square == 7 && fields[2].indexOf('k') >= 0) || (square == 0 && fields[2].indexOf('q') >= 0);
+            } else {
+                unmoved = true;
+            }
+            if (!unmoved) {
+                piece.increaseMoveCount();
+            }
+        }
+        
+        // #SpecialMove enPassant
+        if (!fields[3].equals("-")) {
+            if (fields[3].length() != 2 || fields[3].charAt(0) < 'a' || fields[3].charAt(0) > 'h' || (fields[3].charAt(1) != '3' && fields[3].charAt(1) != '6')) {
+                throw new ChessException("Invalid FEN: " + fen);
+            }
+            int square = ChessBoard.square(new ChessPosition(fields[3].charAt(0), fields[3].charAt(1) - '0').toPosition());
+            ChessPiece pawn = this.board.piece(fields[3].charAt(1) == '3' ? square - 8 : square + 8);
+            if (pawn instanceof Pawn) {
+                this.enPassantVunerable = pawn;
+            }
+        }
+        
+        try {
+            this.halfMoveClock = (fields.length > 4) ? Integer.parseInt(fields[4]) : 0;
+            int fullMoveNumber = (fields.length > 5) ? Integer.parseInt(fields[5]) : 1;
+            this.turn = 2 * (Math.max(fullMoveNumber, 1) - 1) + (this.currentPlayer == Color.CYAN ? 1 : 2);
+        } catch (NumberFormatException e) {
+            throw new ChessException("Invalid FEN: " + fen);
+        }
+        
+        this.key = (this.currentPlayer == Color.YELLOW) ? Zobrist.side() : 0L;
+        this.castlingRights = 0;
+        this.enPassantColumn = -1;
+        this.updateKey();
+        
+        if (this.testCheck(opponent(this.currentPlayer))) {
+            throw new ChessException("Invalid FEN: the side not to move is in check!");
+        }
+        this.check = this.testCheck(this.currentPlayer);
+        int verdict = this.verdict(this.currentPlayer);
+        if ((verdict & VERDICT_CHECKMATE) != 0) {
+            this.checkMate = true;
+            this.turn--;
+            this.currentPlayer = opponent(this.currentPlayer);
+            this.key ^= Zobrist.side();
+        }
+        this.staleMate = (verdict & VERDICT_STALEMATE) != 0;
+        this.publish();
+        this.recordPosition();
+    }
+    
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                ChessPiece piece = this.board.piece(ChessBoard.square(row, column));
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char c = "PNBRQK".charAt(piece.getType().ordinal());
+                sb.append(piece.getColor() == Color.CYAN ? c : Character.toLowerCase(c));
+            }
+            if (empty > 0) {
+                sb.append(empty);
+            }
+            if (row < 7) {
+                sb.append('/');
+            }
+        }
+        
+        Color toMove = this.checkMate ? opponent(this.currentPlayer) : this.currentPlayer;
+        sb.append(toMove == Color.CYAN ? " w " : " b ");
+        
+        if (this.castlingRights == 0) {
+            sb.append('-');
+        } else {
+            if ((this.castlingRights & CYAN_KINGSIDE) != 0) sb.append('K');
+            if ((this.castlingRights & CYAN_QUEENSIDE) != 0) sb.append('Q');
+            if ((this.castlingRights & YELLOW_KINGSIDE) != 0) sb.append('k');
+            if ((this.castlingRights & YELLOW_QUEENSIDE) != 0) sb.append('q');
+        }
+        
+        if (this.enPassantVunerable == null) {
+            sb.append(" -");
+        } else {
+            int square = this.enPassantVunerable.getSquare();
+            int target = (this.enPassantVunerable.getColor() == Color.CYAN) ? square + 8 : square - 8;
+            sb.append(' ').append(ChessPosition.fromPosition(ChessBoard.position(target)));
+        }
+        
+        int turn = this.checkMate ? this.turn + 1 : this.turn;
+        sb.append(' ').append(this.halfMoveClock).append(' ').append((turn + 1) / 2);
+        return sb.toString();
+    }
+    
+    // Layout: u64 occupancy, a nibble per piece in square order (type, 8 for CYAN), u32 mask of the pieces
+    // that have moved and a varint move count for each of them, u8 flags (YELLOW to move, check, checkmate,
+    // stalemate, en passant, promoted), the en passant pawn and promoted piece squares when flagged, varint
+    // turn and half-move clock, then u8 captured count and a nibble per captured piece in capture order
+    public void toBinary(ByteBuffer buffer) {
+        long occupancy = this.board.occupancy(Color.CYAN) | this.board.occupancy(Color.YELLOW);
+        buffer.putLong(occupancy);
+        int moved = 0;
+        int index = 0;
+        int pending = -1;
+        for (long pieces = occupancy; pieces != 0; pieces &= pieces - 1, index++) {
+            ChessPiece piece = this.board.piece(Long.numberOfTrailingZeros(pieces));
+            if (piece.getMoveCount() != 0) {
+                moved |= 1 << index;
+            }
+            pending = putNibble(buffer, pending, code(piece));
+        }
+        if (pending >= 0) {
+            buffer.put((byte) pending);
+        }
+        buffer.putInt(moved);
+        for (long pieces = occupancy; pieces != 0; pieces &= pieces - 1) {
+            ChessPiece piece = this.board.piece(Long.numberOfTrailingZeros(pieces));
+            if (piece.getMoveCount() != 0) {
+                putVarint(buffer, piece.getMoveCount());
+            }
+        }
+        
+        int flags = (this.currentPlayer == Color.YELLOW ? 1 : 0) | (this.check ? 2 : 0) | (this.checkMate ? 4 : 0) | (this.staleMate ? 8 : 0)
+                | (this.enPassantVunerable != null ? 16 : 0) | (this.promoted != null ? 32 : 0);
+        buffer.put((byte) flags);
+        if (this.enPassantVunerable != null) {
+            buffer.put((byte) this.enPassantVunerable.getSquare());
+        }
+        if (this.promoted != null) {
+            buffer.put((byte) this.promoted.getSquare());
+        }
+        putVarint(buffer, this.turn);
+        putVarint(buffer, this.halfMoveClock);
+        
+        buffer.put((byte) this.capturedPieces.size());
+        pending = -1;
+        for (Piece p : this.capturedPieces) {
+            pending = putNibble(buffer, pending, code((ChessPiece) p));
+        }
+        if (pending >= 0) {
+            buffer.put((byte) pending);
+        }
+    }
+    
+    public byte[] toBinary() {
+        ByteBuffer buffer = ByteBuffer.allocate(MAX_BINARY_SIZE);
+        toBinary(buffer);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+    
+    // Restores a state written by toBinary; nothing is recomputed except the keys, so the flags come back as saved.
+    // Everything is decoded and checked before the match changes, so an invalid buffer leaves it as it was.
+    public void loadBinary(ByteBuffer buffer) {
+        long occupancy;
+        ChessPiece[] pieces;
+        ChessPiece[] captures;
+        int flags;
+        int enPassantSquare = -1;
+        int promotedSquare = -1;
+        int turn;
+        int halfMoveClock;
+        try {
+            occupancy = buffer.getLong();
+            int count = Long.bitCount(occupancy);
+            if (count > 32) {
+                throw new ChessException("Invalid binary match: " + count + " pieces");
+            }
+            pieces = new ChessPiece[count];
+            for (int i = 0; i < count; i++) {
+                int code = ((i & 1) == 0) ? buffer.get(buffer.position()) & 15 : (buffer.get() >> 4) & 15;
+                pieces[i] = decode(code);
+            }
+            if ((count & 1) != 0) {
+                buffer.get();
+            }
+            int moved = buffer.getInt();
+            int kings = 0;
+            for (int i = 0; i < count; i++) {
+                if ((moved & (1 << i)) != 0) {
+                    pieces[i].setMoveCount(getVarint(buffer));
+                }
+                if (pieces[i].getType() == PieceType.KING) {
+                    kings += (pieces[i].getColor() == Color.CYAN) ? 1 : 1 << 8;
                 }
             }
+            if (kings != (1 | 1 << 8)) {
+                throw new ChessException("Invalid binary match: there must be exactly one king of each color!");
+            }
+            
+            flags = buffer.get();
+            if ((flags & 16) != 0) {
+                enPassantSquare = buffer.get() & 63;
+                ChessPiece pawn = piece(occupancy, pieces, enPassantSquare);
+                if (pawn == null || pawn.getType() != PieceType.PAWN) {
+                    throw new ChessException("Invalid binary match: the en passant square holds no pawn");
+                }
+            }
+            if ((flags & 32) != 0) {
+                promotedSquare = buffer.get() & 63;
+                if (piece(occupancy, pieces, promotedSquare) == null) {
+                    throw new ChessException("Invalid binary match: the promoted square is empty");
+                }
+            }
+            turn = getVarint(buffer);
+            halfMoveClock = getVarint(buffer);
+            
+            captures = new ChessPiece[buffer.get() & 0xFF];
+            for (int i = 0; i < captures.length; i++) {
+                int code = ((i & 1) == 0) ? buffer.get(buffer.position()) & 15 : (buffer.get() >> 4) & 15;
+                captures[i] = decode(code);
+            }
+            if ((captures.length & 1) != 0) {
+                buffer.get();
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new ChessException("Invalid binary match: truncated");
         }
-        return true;
+        
+        for (int square = 0; square < 64; square++) {
+            this.board.removePiece(square);
+        }
+        this.piecesOnTheBoard.clear();
+        this.capturedPieces.clear();
+        this.historySize = 0;
+        this.playedSize = 0;
+        int index = 0;
+        for (long remaining = occupancy; remaining != 0; remaining &= remaining - 1) {
+            this.board.placePiece(pieces[index], Long.numberOfTrailingZeros(remaining));
+            this.piecesOnTheBoard.add(pieces[index++]);
+        }
+        this.capturedPieces.addAll(Arrays.asList(captures));
+        this.currentPlayer = ((flags & 1) != 0) ? Color.YELLOW : Color.CYAN;
+        this.check = (flags & 2) != 0;
+        this.checkMate = (flags & 4) != 0;
+        this.staleMate = (flags & 8) != 0;
+        this.enPassantVunerable = (enPassantSquare >= 0) ? this.board.piece(enPassantSquare) : null;
+        this.promoted = (promotedSquare >= 0) ? this.board.piece(promotedSquare) : null;
+        this.turn = turn;
+        this.halfMoveClock = halfMoveClock;
+        
+        this.key = (this.currentPlayer == Color.YELLOW) ? Zobrist.side() : 0L;
+        this.castlingRights = 0;
+        this.enPassantColumn = -1;
+        this.updateKey();
+        this.publish();
+        this.recordPosition();
+    }
+    
+    // The decoded piece on a square, the pieces being in the order of the occupancy's set bits
+    private static ChessPiece piece(long occupancy, ChessPiece[] pieces, int square) {
+        if ((occupancy & Bitboards.bit(square)) == 0) {
+            return null;
+        }
+        return pieces[Long.bitCount(occupancy & (Bitboards.bit(square) - 1))];
+    }
+    
+    // Puts back the positions a match had played, such as after reloading its own earlier state; they must end with
+    // the current position
+    public void restorePlayedKeys(long[] keys) {
+        if (keys.length == 0 || keys[keys.length - 1] != getKey()) {
+            throw new IllegalArgumentException("The played positions must end with the current one!");
+        }
+        this.played = Arrays.copyOf(keys, Math.max(keys.length, 8));
+        this.playedSize = keys.length;
+    }
+    
+    private static int code(ChessPiece piece) {
+        return piece.getType().ordinal() | (piece.getColor() == Color.CYAN ? 8 : 0);
+    }
+    
+    private ChessPiece decode(int code) {
+        if ((code & 7) > PieceType.KING.ordinal()) {
+            throw new ChessException("Invalid binary match: piece code " + code);
+        }
+        return newPiece(PieceType.values()[code & 7], ((code & 8) != 0) ? Color.CYAN : Color.YELLOW);
+    }
+    
+    // Two nibbles per byte, the first one low; returns the half-filled byte still to be written, or -1
+    private static int putNibble(ByteBuffer buffer, int pending, int nibble) {
+        if (pending < 0) {
+            return nibble;
+        }
+        buffer.put((byte) (pending | (nibble << 4)));
+        return -1;
+    }
+    
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+    
+    private static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ChessException("Invalid binary match: malformed number");
     }
     
     private void placeNewPiece(char column, int row, ChessPiece piece) {
@@ -344,4 +1061,18 @@ public class ChessMatch {
         placeNewPiece('g', 7, new Pawn(board, Color.YELLOW, this));
         placeNewPiece('h', 7, new Pawn(board, Color.YELLOW, this));
     }
+    
+    private static class MoveRecord {
+        
+        private int move;
+        private ChessPiece capturedPiece;
+        private ChessPiece pawn;
+        private ChessPiece enPassantVunerable;
+        private boolean check;
+        private int castlingRights;
+        private int enPassantColumn;
+        private int halfMoveClock;
+        private long key;
+        
+    }
 }
\ No newline at end of file
@@ -14,6 +14,29 @@ public abstract class ChessPiece extends Piece {
         this.color = color;
     }
     
+    public abstract PieceType getType();
+    
+    public abstract long possibleMovesMask();
+    
+    @Override
+    public boolean[][] possibleMoves() {
+        return Bitboards.toMatrix(possibleMovesMask());
+    }
+    
+    @Override
+    public boolean possibleMove(Position position) {
+        return (possibleMovesMask() & Bitboards.bit(ChessBoard.square(position))) != 0;
+    }
+    
+    @Override
+    public boolean isThereAnyPossibleMove() {
+        return possibleMovesMask() != 0;
+    }
+    
+    protected ChessBoard getChessBoard() {
+        return (ChessBoard) getBoard();
+    }
+    
     protected boolean isThereOpponentPiece(Position position) {
         ChessPiece p = (ChessPiece) getBoard().piece(position);
         return p != null && p.getColor() != color;
@@ -28,13 +51,25 @@ public abstract class ChessPiece extends Piece {
     }
     
     protected void decreaseMoveCount() {
-        this.moveCount++;
+        this.moveCount--;
+    }
+    
+    void setMoveCount(int moveCount) {
+        this.moveCount = moveCount;
     }
     
     public Color getColor() {
         return color;
     }
     
+    void setPosition(Position position) {
+        this.position = position;
+    }
+    
+    public int getSquare() {
+        return ChessBoard.square(position);
+    }
+    
     public ChessPosition getChessPosition() {
         return ChessPosition.fromPosition(position);
     }
@@ -0,0 +1,61 @@
+package chess;
+
+public class Move {
+    
+    public static final int NONE = 0;
+    
+    private static final PieceType[] PROMOTIONS = PieceType.values();
+    
+    private Move() {
+    }
+    
+    public static int of(int source, int target) {
+        return source | (target << 6);
+    }
+    
+    public static int of(int source, int target, PieceType promotion) {
+        return of(source, target) | ((promotion.ordinal() + 1) << 12);
+    }
+    
+    public static int source(int move) {
+        return move & 63;
+    }
+    
+    public static int target(int move) {
+        return (move >>> 6) & 63;
+    }
+    
+    public static PieceType promotion(int move) {
+        int promotion = (move >>> 12) & 7;
+        return promotion == 0 ? null : PROMOTIONS[promotion - 1];
+    }
+    
+    // Coordinate notation as printed by toString, such as e2e4 or e7e8q
+    public static int parse(String s) {
+        if ((s.length() != 4 && s.length() != 5) || s.charAt(0) < 'a' || s.charAt(0) > 'h' || s.charAt(1) < '1' || s.charAt(1) > '8'
+                || s.charAt(2) < 'a' || s.charAt(2) > 'h' || s.charAt(3) < '1' || s.charAt(3) > '8') {
+            throw new ChessException("Invalid move " + s + "! Use coordinates such as e2e4 or e7e8q");
+        }
+        int source = ChessBoard.square('8' - s.charAt(1), s.charAt(0) - 'a');
+        int target = ChessBoard.square('8' - s.charAt(3), s.charAt(2) - 'a');
+        if (s.length() == 4) {
+            return of(source, target);
+        }
+        int promotion = "nbrq".indexOf(s.charAt(4));
+        if (promotion < 0) {
+            throw new ChessException("Invalid promotion " + s.charAt(4) + "! Use n, b, r or q");
+        }
+        return of(source, target, PROMOTIONS[promotion + 1]);
+    }
+    
+    public static String toString(int move) {
+        String s = ChessPosition.fromPosition(ChessBoard.position(source(move))).toString()
+                + ChessPosition.fromPosition(ChessBoard.position(target(move)));
+        PieceType promotion = promotion(move);
+        if (promotion != null) {
+            s += "pnbrqk".charAt(promotion.ordinal());
+        }
+        return s;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package chess;
+
+public class MoveList {
+    
+    public static final int MAX_MOVES = 256;
+    
+    private int[] moves;
+    private int size;
+    
+    public MoveList() {
+        this.moves = new int[MAX_MOVES];
+    }
+    
+    public void add(int move) {
+        this.moves[size++] = move;
+    }
+    
+    public int get(int index) {
+        return this.moves[index];
+    }
+    
+    public void swap(int i, int j) {
+        int move = this.moves[i];
+        this.moves[i] = this.moves[j];
+        this.moves[j] = move;
+    }
+    
+    public int size() {
+        return this.size;
+    }
+    
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+    
+    public void clear() {
+        this.size = 0;
+    }
+    
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,45 @@
+package chess;
+
+// Entries are analysed in place, so a cache belongs to one thread: each search and each match has its own
+public class PawnCache {
+    
+    private final PawnStructure[] entries;
+    private final int mask;
+    private long hits;
+    private long misses;
+    
+    public PawnCache(int entries) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("Pawn cache needs at least 1 entry!");
+        }
+        int capacity = Integer.highestOneBit(entries);
+        this.entries = new PawnStructure[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.entries[i] = new PawnStructure();
+        }
+        this.mask = capacity - 1;
+    }
+    
+    // Entries carry their own key, so a slot never needs a separate verification word. The structure returned is
+    // only valid until the next call, which may analyse another board into the same entry.
+    public PawnStructure get(ChessBoard board) {
+        long key = board.getPawnKey();
+        PawnStructure entry = entries[(int) (key ^ (key >>> 32)) & mask];
+        if (entry.getKey() == key) {
+            hits++;
+            return entry;
+        }
+        misses++;
+        entry.fill(board);
+        return entry;
+    }
+    
+    public long getHits() {
+        return hits;
+    }
+    
+    public long getMisses() {
+        return misses;
+    }
+    
+}
\ No newline at end of file
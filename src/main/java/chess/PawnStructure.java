@@ -0,0 +1,155 @@
+package chess;
+
+public final class PawnStructure {
+    
+    private static final int DOUBLED_PAWN = 10;
+    private static final int ISOLATED_PAWN = 15;
+    private static final int BACKWARD_PAWN = 8;
+    private static final int[] PASSED_PAWN = {0, 5, 10, 20, 35, 60, 100, 0};
+    
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    private static final long[][] PASSED_MASKS = new long[Color.values().length][64];
+    private static final long[][] SUPPORT_MASKS = new long[Color.values().length][64];
+    
+    static {
+        for (int column = 0; column < 8; column++) {
+            FILES[column] = Bitboards.FILE_A << column;
+        }
+        for (int column = 0; column < 8; column++) {
+            ADJACENT_FILES[column] = (column > 0 ? FILES[column - 1] : 0L) | (column < 7 ? FILES[column + 1] : 0L);
+        }
+        for (int square = 0; square < 64; square++) {
+            int row = Bitboards.row(square);
+            long adjacent = ADJACENT_FILES[Bitboards.column(square)];
+            long span = FILES[Bitboards.column(square)] | adjacent;
+            long ahead = (1L << (row << 3)) - 1;
+            long behind = (row == 7) ? 0L : -1L << ((row + 1) << 3);
+            // CYAN pawns move toward row 0, YELLOW pawns toward row 7
+            PASSED_MASKS[Color.CYAN.ordinal()][square] = span & ahead;
+            PASSED_MASKS[Color.YELLOW.ordinal()][square] = span & behind;
+            SUPPORT_MASKS[Color.CYAN.ordinal()][square] = adjacent & ~ahead;
+            SUPPORT_MASKS[Color.YELLOW.ordinal()][square] = adjacent & ~behind;
+        }
+    }
+    
+    private long key;
+    private final long[] doubled = new long[2];
+    private final long[] isolated = new long[2];
+    private final long[] backward = new long[2];
+    private final long[] passed = new long[2];
+    private final int[] penalty = new int[2];
+    private final int[] passedBonus = new int[2];
+    
+    // An empty structure is the analysis of a board without pawns, whose pawn key is 0
+    PawnStructure() {
+    }
+    
+    public static PawnStructure of(ChessBoard board) {
+        PawnStructure structure = new PawnStructure();
+        structure.fill(board);
+        return structure;
+    }
+    
+    // A structure no cache will ever refill, for callers that keep it past the next lookup
+    PawnStructure copy() {
+        PawnStructure copy = new PawnStructure();
+        copy.key = this.key;
+        System.arraycopy(this.doubled, 0, copy.doubled, 0, 2);
+        System.arraycopy(this.isolated, 0, copy.isolated, 0, 2);
+        System.arraycopy(this.backward, 0, copy.backward, 0, 2);
+        System.arraycopy(this.passed, 0, copy.passed, 0, 2);
+        System.arraycopy(this.penalty, 0, copy.penalty, 0, 2);
+        System.arraycopy(this.passedBonus, 0, copy.passedBonus, 0, 2);
+        return copy;
+    }
+    
+    // Analyses the board in place, so a cache can reuse its entries without allocating
+    void fill(ChessBoard board) {
+        this.key = board.getPawnKey();
+        long cyanPawns = board.pieces(Color.CYAN, PieceType.PAWN);
+        long yellowPawns = board.pieces(Color.YELLOW, PieceType.PAWN);
+        analyse(Color.CYAN, cyanPawns, yellowPawns);
+        analyse(Color.YELLOW, yellowPawns, cyanPawns);
+    }
+    
+    private void analyse(Color color, long pawns, long enemyPawns) {
+        int c = color.ordinal();
+        this.doubled[c] = 0L;
+        this.isolated[c] = 0L;
+        this.backward[c] = 0L;
+        this.passed[c] = 0L;
+        this.penalty[c] = 0;
+        this.passedBonus[c] = 0;
+        for (int column = 0; column < 8; column++) {
+            int count = Long.bitCount(pawns & FILES[column]);
+            if (count > 1) {
+                this.doubled[c] |= pawns & FILES[column];
+                this.penalty[c] -= DOUBLED_PAWN * (count - 1);
+            }
+        }
+        
+        long remaining = pawns;
+        while (remaining != 0) {
+            int square = Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            long b = Bitboards.bit(square);
+            int column = Bitboards.column(square);
+            if ((pawns & ADJACENT_FILES[column]) == 0) {
+                this.isolated[c] |= b;
+                this.penalty[c] -= ISOLATED_PAWN;
+            } else if ((pawns & SUPPORT_MASKS[c][square]) == 0 && isStopAttacked(color, square, enemyPawns)) {
+                this.backward[c] |= b;
+                this.penalty[c] -= BACKWARD_PAWN;
+            }
+            if ((PASSED_MASKS[c][square] & enemyPawns) == 0) {
+                this.passed[c] |= b;
+                this.passedBonus[c] += PASSED_PAWN[(color == Color.CYAN) ? 7 - Bitboards.row(square) : Bitboards.row(square)];
+            }
+        }
+    }
+    
+    private static boolean isStopAttacked(Color color, int square, long enemyPawns) {
+        int stop = (color == Color.CYAN) ? square - 8 : square + 8;
+        return stop >= 0 && stop < 64 && (Bitboards.pawnAttacks(color, stop) & enemyPawns) != 0;
+    }
+    
+    public static int files(long pawns) {
+        int files = 0;
+        for (int column = 0; column < 8; column++) {
+            if ((pawns & FILES[column]) != 0) {
+                files |= 1 << column;
+            }
+        }
+        return files;
+    }
+    
+    public long getKey() {
+        return key;
+    }
+    
+    public long getDoubled(Color color) {
+        return doubled[color.ordinal()];
+    }
+    
+    public long getIsolated(Color color) {
+        return isolated[color.ordinal()];
+    }
+    
+    public long getBackward(Color color) {
+        return backward[color.ordinal()];
+    }
+    
+    public long getPassed(Color color) {
+        return passed[color.ordinal()];
+    }
+    
+    public int getPenalty(Color color) {
+        return penalty[color.ordinal()];
+    }
+    
+    public int getPassedBonus(Color color) {
+        return passedBonus[color.ordinal()];
+    }
+    
+}
\ No newline at end of file
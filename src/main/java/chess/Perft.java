@@ -0,0 +1,66 @@
+package chess;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Perft {
+    
+    private ChessMatch chessMatch;
+    private MoveList[] moves;
+    
+    public Perft(ChessMatch chessMatch) {
+        this.chessMatch = chessMatch;
+        this.moves = new MoveList[0];
+    }
+    
+    public long perft(int depth) {
+        ensureDepth(depth);
+        return perft(depth, 0);
+    }
+    
+    public Map<String, Long> divide(int depth) {
+        ensureDepth(depth);
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (depth < 1) {
+            return result;
+        }
+        MoveList list = moves[0];
+        chessMatch.legalMoves(list);
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            chessMatch.playMove(move);
+            result.put(Move.toString(move), perft(depth - 1, 1));
+            chessMatch.undoLastMove();
+        }
+        return result;
+    }
+    
+    private long perft(int depth, int ply) {
+        if (depth == 0) {
+            return 1L;
+        }
+        MoveList list = moves[ply];
+        chessMatch.legalMoves(list);
+        if (depth == 1) {
+            return list.size();
+        }
+        long nodes = 0L;
+        for (int i = 0; i < list.size(); i++) {
+            chessMatch.playMove(list.get(i));
+            nodes += perft(depth - 1, ply + 1);
+            chessMatch.undoLastMove();
+        }
+        return nodes;
+    }
+    
+    private void ensureDepth(int depth) {
+        if (moves.length < depth) {
+            MoveList[] grown = new MoveList[depth];
+            for (int i = 0; i < depth; i++) {
+                grown[i] = (i < moves.length) ? moves[i] : new MoveList();
+            }
+            moves = grown;
+        }
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,122 @@
+package chess;
+
+public final class PositionSnapshot {
+    
+    private static final int SIDE = 1;
+    private static final int CHECK = 1 << 1;
+    private static final int CHECKMATE = 1 << 2;
+    private static final int STALEMATE = 1 << 3;
+    private static final int CASTLING_SHIFT = 4;
+    private static final int EN_PASSANT_SHIFT = 8;
+    private static final int HALF_MOVE_SHIFT = 12;
+    private static final int TURN_SHIFT = 32;
+    // values() clones its array on every call, and spectators read snapshots without allocating
+    private static final Color[] COLORS = Color.values();
+    private static final PieceType[] TYPES = PieceType.values();
+    
+    // One set per color and type, indexed by color * 6 + type
+    private final long[] bitboards;
+    private final long state;
+    private final long key;
+    
+    private PositionSnapshot(long[] bitboards, long state, long key) {
+        this.bitboards = bitboards;
+        this.state = state;
+        this.key = key;
+    }
+    
+    static PositionSnapshot of(ChessBoard board, Color currentPlayer, int turn, int castlingRights, int enPassantColumn,
+                               int halfMoveClock, boolean check, boolean checkMate, boolean staleMate, long key) {
+        long[] bitboards = new long[COLORS.length * TYPES.length];
+        for (Color color : COLORS) {
+            for (PieceType type : TYPES) {
+                bitboards[index(color, type)] = board.pieces(color, type);
+            }
+        }
+        long state = (currentPlayer == Color.CYAN ? SIDE : 0)
+                | (check ? CHECK : 0)
+                | (checkMate ? CHECKMATE : 0)
+                | (staleMate ? STALEMATE : 0)
+                | ((long) castlingRights << CASTLING_SHIFT)
+                | ((long) (enPassantColumn + 1) << EN_PASSANT_SHIFT)
+                | ((long) (halfMoveClock & 0xFFFFF) << HALF_MOVE_SHIFT)
+                | ((long) turn << TURN_SHIFT);
+        return new PositionSnapshot(bitboards, state, key);
+    }
+    
+    private static int index(Color color, PieceType type) {
+        return color.ordinal() * TYPES.length + type.ordinal();
+    }
+    
+    public long pieces(Color color, PieceType type) {
+        return bitboards[index(color, type)];
+    }
+    
+    public long occupancy(Color color) {
+        long occupied = 0L;
+        int first = color.ordinal() * TYPES.length;
+        for (int i = first; i < first + TYPES.length; i++) {
+            occupied |= bitboards[i];
+        }
+        return occupied;
+    }
+    
+    public long occupancy() {
+        return occupancy(Color.CYAN) | occupancy(Color.YELLOW);
+    }
+    
+    public PieceType type(int square) {
+        long b = Bitboards.bit(square);
+        for (int i = 0; i < bitboards.length; i++) {
+            if ((bitboards[i] & b) != 0) {
+                return TYPES[i % TYPES.length];
+            }
+        }
+        return null;
+    }
+    
+    public Color color(int square) {
+        long b = Bitboards.bit(square);
+        if ((occupancy(Color.CYAN) & b) != 0) {
+            return Color.CYAN;
+        }
+        return (occupancy(Color.YELLOW) & b) != 0 ? Color.YELLOW : null;
+    }
+    
+    public Color getCurrentPlayer() {
+        return (state & SIDE) != 0 ? Color.CYAN : Color.YELLOW;
+    }
+    
+    public int getTurn() {
+        return (int) (state >>> TURN_SHIFT);
+    }
+    
+    public boolean getCheck() {
+        return (state & CHECK) != 0;
+    }
+    
+    public boolean getCheckMate() {
+        return (state & CHECKMATE) != 0;
+    }
+    
+    public boolean getStaleMate() {
+        return (state & STALEMATE) != 0;
+    }
+    
+    public int getCastlingRights() {
+        return (int) (state >>> CASTLING_SHIFT) & 0xF;
+    }
+    
+    public int getEnPassantColumn() {
+        return ((int) (state >>> EN_PASSANT_SHIFT) & 0xF) - 1;
+    }
+    
+    public int getHalfMoveClock() {
+        return (int) (state >>> HALF_MOVE_SHIFT) & 0xFFFFF;
+    }
+    
+    public long getKey() {
+        return key;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package chess;
+
+public class San {
+    
+    private static final PieceType[] TYPES = PieceType.values();
+    
+    private San() {
+    }
+    
+    public static int parse(ChessMatch chessMatch, String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        String s = san.substring(0, end);
+        ChessBoard board = chessMatch.getBoard();
+        Color color = chessMatch.getCurrentPlayer();
+        
+        // #SpecialMove Castling
+        if (s.equals("O-O") || s.equals("0-0") || s.equals("O-O-O") || s.equals("0-0-0")) {
+            int kingSquare = board.kingSquare(color);
+            int target = (s.length() == 3) ? kingSquare + 2 : kingSquare - 2;
+            if ((board.piece(kingSquare).possibleMovesMask() & Bitboards.bit(target)) == 0 || !chessMatch.isLegal(kingSquare, target, color)) {
+                throw new ChessException("Illegal move: " + san);
+            }
+            return Move.of(kingSquare, target);
+        }
+        
+        // #SpecialMove Promotion
+        PieceType promotion = null;
+        if (s.length() > 2 && "NBRQ".indexOf(s.charAt(s.length() - 1)) >= 0) {
+            promotion = pieceType(s.charAt(s.length() - 1));
+            s = s.substring(0, s.charAt(s.length() - 2) == '=' ? s.length() - 2 : s.length() - 1);
+        }
+        
+        PieceType type = PieceType.PAWN;
+        int start = 0;
+        if (s.length() > 0 && Character.isUpperCase(s.charAt(0))) {
+            type = pieceType(s.charAt(0));
+            start = 1;
+        }
+        if (s.length() - start < 2) {
+            throw new ChessException("Invalid move: " + san);
+        }
+        int target = square(s.charAt(s.length() - 2), s.charAt(s.length() - 1), san);
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < s.length() - 2; i++) {
+            char c = s.charAt(i);
+            if (c >= 'a' && c <= 'h') {
+                fromColumn = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRow = 8 - (c - '0');
+            } else if (c != 'x' && c != '-') {
+                throw new ChessException("Invalid move: " + san);
+            }
+        }
+        
+        boolean lastRow = Bitboards.row(target) == 0 || Bitboards.row(target) == 7;
+        if ((promotion != null) != (type == PieceType.PAWN && lastRow)) {
+            throw new ChessException("Illegal move: " + san);
+        }
+        
+        int found = -1;
+        long candidates = board.pieces(color, type);
+        while (candidates != 0) {
+            int source = Long.numberOfTrailingZeros(candidates);
+            candidates &= candidates - 1;
+            if ((fromColumn >= 0 && Bitboards.column(source) != fromColumn) || (fromRow >= 0 && Bitboards.row(source) != fromRow)) {
+                continue;
+            }
+            if ((board.piece(source).possibleMovesMask() & Bitboards.bit(target)) == 0 || !chessMatch.isLegal(source, target, color)) {
+                continue;
+            }
+            if (found != -1) {
+                throw new ChessException("Ambiguous move: " + san);
+            }
+            found = (promotion == null) ? Move.of(source, target) : Move.of(source, target, promotion);
+        }
+        if (found == -1) {
+            throw new ChessException("Illegal move: " + san);
+        }
+        return found;
+    }
+    
+    private static PieceType pieceType(char c) {
+        int index = "PNBRQK".indexOf(c);
+        if (index < 0) {
+            throw new ChessException("Invalid piece: " + c);
+        }
+        return TYPES[index];
+    }
+    
+    private static int square(char column, char row, String san) {
+        if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+            throw new ChessException("Invalid move: " + san);
+        }
+        return ChessBoard.square(8 - (row - '0'), column - 'a');
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,96 @@
+package chess;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TranspositionTable {
+    
+    public static final long MISSING = -1L;
+    
+    // OLDEST_STORED keeps two entries per bucket and replaces the one stored longer ago, however recently it was
+    // read: only put writes the bucket's age, so probes from many threads never write to the table.
+    public enum ReplacementPolicy {
+        ALWAYS_REPLACE,
+        OLDEST_STORED;
+    }
+    
+    private final ReplacementPolicy policy;
+    private final int ways;
+    private final int bucketMask;
+    private final long[] keys;
+    private final long[] values;
+    private final byte[] newest;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    
+    public TranspositionTable(int entries, ReplacementPolicy policy) {
+        if (entries < 2) {
+            throw new IllegalArgumentException("Transposition table needs at least 2 entries!");
+        }
+        this.policy = policy;
+        this.ways = (policy == ReplacementPolicy.ALWAYS_REPLACE) ? 1 : 2;
+        int capacity = Integer.highestOneBit(entries - 1) << 1;
+        this.bucketMask = capacity / ways - 1;
+        this.keys = new long[capacity];
+        this.values = new long[capacity];
+        this.newest = (ways == 1) ? null : new byte[capacity / ways];
+    }
+    
+    public long get(long key) {
+        int base = bucket(key);
+        for (int i = base; i < base + ways; i++) {
+            long value = values[i];
+            if ((keys[i] ^ value) == key) {
+                hits.increment();
+                return value;
+            }
+        }
+        misses.increment();
+        return MISSING;
+    }
+    
+    public void put(long key, long value) {
+        int base = bucket(key);
+        int slot = base;
+        if (ways > 1) {
+            int bucket = base / ways;
+            slot = (keys[base + 1] ^ values[base + 1]) == key ? base + 1
+                    : (keys[base] ^ values[base]) == key ? base : base + 1 - newest[bucket];
+            newest[bucket] = (byte) (slot - base);
+        }
+        values[slot] = value;
+        keys[slot] = key ^ value;
+    }
+    
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, 0L);
+        if (newest != null) {
+            Arrays.fill(newest, (byte) 0);
+        }
+        hits.reset();
+        misses.reset();
+    }
+    
+    private int bucket(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * ways;
+    }
+    
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+    
+    public int getCapacity() {
+        return keys.length;
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package chess;
+
+public class Zobrist {
+    
+    private static final long[][][] PIECES = new long[Color.values().length][PieceType.values().length][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long SIDE;
+    private static final long[] QUERIES = new long[65];
+    
+    private static long seed = 0x2545F4914F6CDD1DL;
+    
+    static {
+        for (long[][] color : PIECES) {
+            for (long[] type : color) {
+                for (int square = 0; square < 64; square++) {
+                    type[square] = next();
+                }
+            }
+        }
+        for (int rights = 1; rights < CASTLING.length; rights++) {
+            CASTLING[rights] = next();
+        }
+        for (int column = 0; column < EN_PASSANT.length; column++) {
+            EN_PASSANT[column] = next();
+        }
+        SIDE = next();
+        for (int query = 0; query < QUERIES.length; query++) {
+            QUERIES[query] = next();
+        }
+    }
+    
+    private Zobrist() {
+    }
+    
+    private static long next() {
+        long z = (seed += 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+    public static long piece(Color color, PieceType type, int square) {
+        return PIECES[color.ordinal()][type.ordinal()][square];
+    }
+    
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+    
+    public static long enPassant(int column) {
+        return column < 0 ? 0L : EN_PASSANT[column];
+    }
+    
+    public static long side() {
+        return SIDE;
+    }
+    
+    public static long query(int query) {
+        return QUERIES[query];
+    }
+    
+}
\ No newline at end of file
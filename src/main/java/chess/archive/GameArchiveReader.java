@@ -0,0 +1,192 @@
+package chess.archive;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class GameArchiveReader implements Closeable {
+    
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private MoveList moves;
+    private long index;
+    private int record;
+    private int next;
+    
+    public GameArchiveReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (this.channel.size() > GameArchiveWriter.MAX_SIZE) {
+            this.channel.close();
+            throw new IOException("Archive larger than 2 GiB: " + path);
+        }
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+        if (this.buffer.limit() < GameArchiveWriter.FILE_HEADER_SIZE || this.buffer.getInt(0) != GameArchiveWriter.MAGIC) {
+            this.channel.close();
+            throw new IOException("Not a game archive: " + path);
+        }
+        // Records of another version may be laid out differently, so they are refused rather than misread
+        if (this.buffer.getInt(4) != GameArchiveWriter.VERSION) {
+            this.channel.close();
+            throw new IOException("Unsupported game archive version " + this.buffer.getInt(4) + ": " + path);
+        }
+        this.moves = new MoveList();
+        this.index = -1;
+        this.record = -1;
+        this.next = GameArchiveWriter.FILE_HEADER_SIZE;
+    }
+    
+    // The reader is a cursor over the mapped file: next() only moves it, and the accessors
+    // decode fields of the current record in place
+    public boolean next() throws IOException {
+        if (this.next >= this.buffer.limit()) {
+            return false;
+        }
+        if (this.next + GameArchiveWriter.HEADER_SIZE > this.buffer.limit()) {
+            throw new IOException("Truncated game archive at byte " + this.next);
+        }
+        int length = this.buffer.getInt(this.next);
+        if (length < GameArchiveWriter.HEADER_SIZE - 4 || this.next + 4L + length > this.buffer.limit() || !isWellFormed(this.next, length)) {
+            throw new IOException("Corrupt game archive at byte " + this.next);
+        }
+        this.record = this.next;
+        this.next += 4 + length;
+        this.index++;
+        return true;
+    }
+    
+    // Every length inside the record must end within it, so the accessors never read into the next record
+    private boolean isWellFormed(int record, int length) {
+        int end = record + 4 + length;
+        int tagsEnd = record + GameArchiveWriter.HEADER_SIZE + (this.buffer.getShort(record + 8) & 0xFFFF);
+        if ((long) tagsEnd + (this.buffer.getShort(record + 6) & 0xFFFF) != end) {
+            return false;
+        }
+        int count = this.buffer.get(record + 5) & 0xFF;
+        int position = record + GameArchiveWriter.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            if (position + 3 > tagsEnd) {
+                return false;
+            }
+            int nameLength = this.buffer.get(position) & 0xFF;
+            if (position + 3 + nameLength > tagsEnd) {
+                return false;
+            }
+            position += 3 + nameLength + (this.buffer.getShort(position + 1 + nameLength) & 0xFFFF);
+            if (position > tagsEnd) {
+                return false;
+            }
+        }
+        return position == tagsEnd;
+    }
+    
+    public long getIndex() {
+        return this.index;
+    }
+    
+    public String getResult() {
+        return GameArchiveWriter.RESULTS[this.buffer.get(current() + 4) & 3];
+    }
+    
+    public int getPlies() {
+        return this.buffer.getShort(current() + 6) & 0xFFFF;
+    }
+    
+    public String getTag(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int count = this.buffer.get(current() + 5) & 0xFF;
+        int position = this.record + GameArchiveWriter.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int nameLength = this.buffer.get(position) & 0xFF;
+            int valueLength = this.buffer.getShort(position + 1 + nameLength) & 0xFFFF;
+            if (matches(position + 1, nameLength, key)) {
+                return string(position + 3 + nameLength, valueLength);
+            }
+            position += 3 + nameLength + valueLength;
+        }
+        return null;
+    }
+    
+    public Map<String, String> getTags() {
+        Map<String, String> tags = new LinkedHashMap<>();
+        int count = this.buffer.get(current() + 5) & 0xFF;
+        int position = this.record + GameArchiveWriter.HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            int nameLength = this.buffer.get(position) & 0xFF;
+            int valueLength = this.buffer.getShort(position + 1 + nameLength) & 0xFFFF;
+            tags.put(string(position + 1, nameLength), string(position + 3 + nameLength, valueLength));
+            position += 3 + nameLength + valueLength;
+        }
+        return tags;
+    }
+    
+    public int replay(ChessMatch chessMatch) {
+        return replay(chessMatch, null);
+    }
+    
+    public int[] getMoves(ChessMatch chessMatch) {
+        int[] result = new int[getPlies()];
+        replay(chessMatch, result);
+        return result;
+    }
+    
+    private int replay(ChessMatch chessMatch, int[] result) {
+        String fen = getTag("FEN");
+        chessMatch.loadFen(fen != null ? fen : ChessMatch.INITIAL_FEN);
+        int plies = getPlies();
+        int position = this.record + GameArchiveWriter.HEADER_SIZE + (this.buffer.getShort(this.record + 8) & 0xFFFF);
+        for (int ply = 0; ply < plies; ply++) {
+            chessMatch.legalMoves(this.moves);
+            int moveIndex = this.buffer.get(position + ply) & 0xFF;
+            if (moveIndex >= this.moves.size()) {
+                throw new ChessException("Corrupt move in game " + this.index + " at ply " + (ply + 1));
+            }
+            int move = this.moves.get(moveIndex);
+            chessMatch.performChessMovie(move);
+            if (result != null) {
+                result[ply] = move;
+            }
+        }
+        return plies;
+    }
+    
+    private int current() {
+        if (this.record < 0) {
+            throw new IllegalStateException("There is no current game, call next() first!");
+        }
+        return this.record;
+    }
+    
+    private boolean matches(int position, int length, byte[] key) {
+        if (length != key.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.buffer.get(position + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private String string(int position, int length) {
+        byte[] bytes = new byte[length];
+        this.buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+    
+}
\ No newline at end of file
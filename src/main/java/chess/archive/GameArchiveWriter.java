@@ -0,0 +1,181 @@
+package chess.archive;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.San;
+import chess.TranspositionTable;
+import chess.pgn.PgnGame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+public class GameArchiveWriter implements Closeable {
+    
+    // File header: u32 magic, u32 version, then the records one after another
+    // Record layout: u32 length, u8 result, u8 tag count, u16 plies, u16 tag bytes,
+    // tags as (u8 name length, name, u16 value length, value), then one byte per ply
+    // holding the index of the move in the legal move list of its position
+    static final int MAGIC = 0x43474131;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_SIZE = 8;
+    // The reader maps the whole file into one buffer, so no archive may grow past what a buffer can hold
+    static final long MAX_SIZE = Integer.MAX_VALUE;
+    static final String[] RESULTS = {"*", "1-0", "0-1", "1/2-1/2"};
+    static final int HEADER_SIZE = 10;
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private ByteBuffer record;
+    private ChessMatch chessMatch;
+    private MoveList moves;
+    private long games;
+    private long size;
+    
+    public GameArchiveWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.record = ByteBuffer.allocate(1 << 12);
+        this.chessMatch = new ChessMatch(new TranspositionTable(1 << 14, TranspositionTable.ReplacementPolicy.OLDEST_STORED));
+        this.moves = new MoveList();
+        this.buffer.putInt(MAGIC).putInt(VERSION);
+        this.size = FILE_HEADER_SIZE;
+    }
+    
+    public void write(PgnGame game) throws IOException {
+        String fen = game.getTag("FEN");
+        this.chessMatch.loadFen(fen != null ? fen : ChessMatch.INITIAL_FEN);
+        beginRecord(game.getTags(), game.getMoves().size(), game.getResult());
+        for (String san : game.getMoves()) {
+            if (this.chessMatch.getCheckMate() || this.chessMatch.getStaleMate()) {
+                throw new ChessException("Move " + san + " after the end of the game");
+            }
+            appendMove(San.parse(this.chessMatch, san));
+        }
+        endRecord();
+    }
+    
+    public void write(Map<String, String> tags, int[] moves, String result) throws IOException {
+        String fen = tags.get("FEN");
+        this.chessMatch.loadFen(fen != null ? fen : ChessMatch.INITIAL_FEN);
+        beginRecord(tags, moves.length, result);
+        for (int move : moves) {
+            appendMove(move);
+        }
+        endRecord();
+    }
+    
+    public long getGames() {
+        return this.games;
+    }
+    
+    private void beginRecord(Map<String, String> tags, int plies, String result) {
+        if (plies > 0xFFFF || tags.size() > 0xFF) {
+            throw new IllegalArgumentException("Game too long for the archive format!");
+        }
+        int code = 0;
+        for (int i = 0; i < RESULTS.length; i++) {
+            if (RESULTS[i].equals(result)) {
+                code = i;
+            }
+        }
+        this.record.clear();
+        this.record.putInt(0);
+        this.record.put((byte) code);
+        this.record.put((byte) tags.size());
+        this.record.putShort((short) plies);
+        this.record.putShort((short) 0);
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            byte[] name = tag.getKey().getBytes(StandardCharsets.UTF_8);
+            byte[] value = tag.getValue().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFF || value.length > 0xFFFF) {
+                throw new IllegalArgumentException("Tag too long for the archive format: " + tag.getKey());
+            }
+            ensureCapacity(3 + name.length + value.length);
+            this.record.put((byte) name.length).put(name);
+            this.record.putShort((short) value.length).put(value);
+        }
+        int tagBytes = this.record.position() - HEADER_SIZE;
+        if (tagBytes > 0xFFFF) {
+            throw new IllegalArgumentException("Tags too long for the archive format!");
+        }
+        this.record.putShort(8, (short) tagBytes);
+    }
+    
+    private void appendMove(int move) {
+        if (this.chessMatch.getCheckMate() || this.chessMatch.getStaleMate()) {
+            throw new ChessException("Move " + Move.toString(move) + " after the end of the game");
+        }
+        this.chessMatch.legalMoves(this.moves);
+        int index = -1;
+        for (int i = 0; i < this.moves.size(); i++) {
+            if (this.moves.get(i) == move) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            throw new ChessException("Illegal move: " + Move.toString(move));
+        }
+        ensureCapacity(1);
+        this.record.put((byte) index);
+        this.chessMatch.performChessMovie(move);
+    }
+    
+    // A game that would make the archive unreadable is refused, and everything written before it stays readable
+    private void endRecord() throws IOException {
+        if (this.size + this.record.position() > MAX_SIZE) {
+            throw new IOException("Game archive full: " + this.games + " games, " + this.size + " bytes");
+        }
+        this.size += this.record.position();
+        this.record.putInt(0, this.record.position() - 4);
+        this.record.flip();
+        while (this.record.hasRemaining()) {
+            if (!this.buffer.hasRemaining()) {
+                flush();
+            }
+            int n = Math.min(this.record.remaining(), this.buffer.remaining());
+            int limit = this.record.limit();
+            this.record.limit(this.record.position() + n);
+            this.buffer.put(this.record);
+            this.record.limit(limit);
+        }
+        this.games++;
+    }
+    
+    private void ensureCapacity(int bytes) {
+        if (this.record.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(this.record.capacity() * 2, this.record.position() + bytes));
+            this.record.flip();
+            grown.put(this.record);
+            this.record = grown;
+        }
+    }
+    
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,129 @@
+package chess.book;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+public class OpeningBook implements Closeable {
+    
+    // Header: u32 magic, u32 version, u64 entry count; entries: u64 key, u16 move, u16 games,
+    // u32 points (2 per win and 1 per draw for the side that played the move), sorted by key
+    static final int MAGIC = 0x43424B31;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int ENTRY_SIZE = 16;
+    
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int entries;
+    
+    public OpeningBook(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        if (this.channel.size() > Integer.MAX_VALUE) {
+            this.channel.close();
+            throw new IOException("Opening book larger than 2 GiB: " + path);
+        }
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, 0, this.channel.size());
+        if (this.buffer.limit() < HEADER_SIZE || this.buffer.getInt(0) != MAGIC || this.buffer.getInt(4) != VERSION
+                || this.buffer.getLong(8) != (this.buffer.limit() - HEADER_SIZE) / ENTRY_SIZE) {
+            this.channel.close();
+            throw new IOException("Not an opening book: " + path);
+        }
+        this.entries = (int) this.buffer.getLong(8);
+    }
+    
+    public int getEntries() {
+        return this.entries;
+    }
+    
+    public int bestMove(ChessMatch chessMatch) {
+        int best = Move.NONE;
+        long bestPoints = -1;
+        long key = chessMatch.getKey();
+        for (int i = first(key); i < this.entries && key(i) == key; i++) {
+            if (points(i) > bestPoints && chessMatch.isLegalMove(move(i))) {
+                best = move(i);
+                bestPoints = points(i);
+            }
+        }
+        return best;
+    }
+    
+    public int randomMove(ChessMatch chessMatch, Random random) {
+        long key = chessMatch.getKey();
+        int first = first(key);
+        int total = 0;
+        for (int i = first; i < this.entries && key(i) == key; i++) {
+            if (chessMatch.isLegalMove(move(i))) {
+                total += games(i);
+            }
+        }
+        if (total == 0) {
+            return Move.NONE;
+        }
+        int pick = random.nextInt(total);
+        for (int i = first; ; i++) {
+            if (chessMatch.isLegalMove(move(i))) {
+                pick -= games(i);
+                if (pick < 0) {
+                    return move(i);
+                }
+            }
+        }
+    }
+    
+    public int moves(ChessMatch chessMatch, MoveList moves) {
+        moves.clear();
+        long key = chessMatch.getKey();
+        for (int i = first(key); i < this.entries && key(i) == key; i++) {
+            if (chessMatch.isLegalMove(move(i))) {
+                moves.add(move(i));
+            }
+        }
+        return moves.size();
+    }
+    
+    private int first(long key) {
+        int low = 0;
+        int high = this.entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(key(middle), key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    private long key(int entry) {
+        return this.buffer.getLong(HEADER_SIZE + entry * ENTRY_SIZE);
+    }
+    
+    private int move(int entry) {
+        return this.buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 8) & 0x7FFF;
+    }
+    
+    private int games(int entry) {
+        return this.buffer.getShort(HEADER_SIZE + entry * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+    
+    private long points(int entry) {
+        return this.buffer.getInt(HEADER_SIZE + entry * ENTRY_SIZE + 12) & 0xFFFFFFFFL;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+    
+}
\ No newline at end of file
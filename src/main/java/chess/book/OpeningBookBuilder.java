@@ -0,0 +1,144 @@
+package chess.book;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.San;
+import chess.TranspositionTable;
+import chess.pgn.PgnGame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OpeningBookBuilder {
+    
+    private int maxPlies;
+    private ChessMatch chessMatch;
+    private Map<Long, Map<Integer, long[]>> positions;
+    private long[] keys;
+    private int[] moves;
+    private int[] points;
+    private long games;
+    
+    public OpeningBookBuilder(int maxPlies) {
+        if (maxPlies < 1) {
+            throw new IllegalArgumentException("An opening book needs at least 1 ply per game!");
+        }
+        this.maxPlies = maxPlies;
+        this.chessMatch = new ChessMatch(new TranspositionTable(1 << 14, TranspositionTable.ReplacementPolicy.OLDEST_STORED));
+        this.positions = new HashMap<>();
+        this.keys = new long[maxPlies];
+        this.moves = new int[maxPlies];
+        this.points = new int[maxPlies];
+    }
+    
+    // The whole opening is parsed before anything is counted, so an illegal game adds nothing; neither does an
+    // unfinished one, since its result says nothing about the moves, and then false is returned
+    public boolean add(PgnGame game) {
+        String result = game.getResult();
+        if (!result.equals("1-0") && !result.equals("0-1") && !result.equals("1/2-1/2")) {
+            return false;
+        }
+        String fen = game.getTag("FEN");
+        this.chessMatch.loadFen(fen != null ? fen : ChessMatch.INITIAL_FEN);
+        int plies = 0;
+        for (String san : game.getMoves()) {
+            if (plies == this.maxPlies || this.chessMatch.getCheckMate() || this.chessMatch.getStaleMate()) {
+                break;
+            }
+            int move = San.parse(this.chessMatch, san);
+            this.keys[plies] = this.chessMatch.getKey();
+            this.moves[plies] = move;
+            this.points[plies] = points(result, this.chessMatch.getCurrentPlayer());
+            this.chessMatch.performChessMovie(move);
+            plies++;
+        }
+        
+        for (int ply = 0; ply < plies; ply++) {
+            long[] counts = this.positions.computeIfAbsent(this.keys[ply], k -> new HashMap<>()).computeIfAbsent(this.moves[ply], m -> new long[2]);
+            counts[0]++;
+            counts[1] += this.points[ply];
+        }
+        this.games++;
+        return true;
+    }
+    
+    public long getGames() {
+        return this.games;
+    }
+    
+    public int getPositions() {
+        return this.positions.size();
+    }
+    
+    public long write(Path path, int minGames) throws IOException {
+        long[] sorted = new long[this.positions.size()];
+        int n = 0;
+        for (long key : this.positions.keySet()) {
+            sorted[n++] = key;
+        }
+        Arrays.sort(sorted);
+        // The reader searches keys as unsigned numbers, so negative keys go last
+        int split = 0;
+        while (split < sorted.length && sorted[split] < 0) {
+            split++;
+        }
+        long[] ordered = new long[sorted.length];
+        System.arraycopy(sorted, split, ordered, 0, sorted.length - split);
+        System.arraycopy(sorted, 0, ordered, sorted.length - split, split);
+        
+        long entries = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putLong(0L);
+            for (long key : ordered) {
+                Map<Integer, long[]> candidates = this.positions.get(key);
+                Integer[] byGames = candidates.keySet().toArray(new Integer[0]);
+                Arrays.sort(byGames, (a, b) -> Long.compare(candidates.get(b)[0], candidates.get(a)[0]));
+                for (int move : byGames) {
+                    long[] counts = candidates.get(move);
+                    if (counts[0] < minGames) {
+                        continue;
+                    }
+                    if (buffer.remaining() < OpeningBook.ENTRY_SIZE) {
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(key);
+                    buffer.putShort((short) move);
+                    buffer.putShort((short) Math.min(counts[0], 0xFFFF));
+                    buffer.putInt((int) Math.min(counts[1], 0xFFFFFFFFL));
+                    entries++;
+                }
+            }
+            flush(channel, buffer);
+            buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putLong(entries);
+            buffer.flip();
+            channel.write(buffer, 0);
+        }
+        return entries;
+    }
+    
+    private static int points(String result, Color mover) {
+        if (result.equals("1-0")) {
+            return (mover == Color.CYAN) ? 2 : 0;
+        }
+        if (result.equals("0-1")) {
+            return (mover == Color.YELLOW) ? 2 : 0;
+        }
+        return 1;
+    }
+    
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+}
\ No newline at end of file
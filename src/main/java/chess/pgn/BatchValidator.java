@@ -0,0 +1,139 @@
+package chess.pgn;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.TranspositionTable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+public class BatchValidator implements AutoCloseable {
+    
+    private static final int BATCH_SIZE = 256;
+    private static final int CACHE_ENTRIES = 1 << 14;
+    
+    private ExecutorService executor;
+    private int threads;
+    private ThreadLocal<Worker> workers;
+    
+    public BatchValidator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public BatchValidator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("There must be at least 1 validation thread!");
+        }
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "game-validator");
+            t.setDaemon(true);
+            return t;
+        });
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+    
+    public List<GameVerdict> validate(List<PgnGame> games) {
+        List<GameVerdict> verdicts = new ArrayList<>(games.size());
+        Iterator<PgnGame> iterator = games.iterator();
+        try {
+            validate(() -> iterator.hasNext() ? iterator.next() : null, verdicts::add);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return verdicts;
+    }
+    
+    public long validate(PgnReader reader, Consumer<GameVerdict> consumer) throws IOException {
+        return validate(reader::next, consumer);
+    }
+    
+    private long validate(GameSource source, Consumer<GameVerdict> consumer) throws IOException {
+        ArrayDeque<Future<List<GameVerdict>>> inFlight = new ArrayDeque<>();
+        long index = 0;
+        PgnGame game = source.next();
+        while (game != null) {
+            List<PgnGame> batch = new ArrayList<>(BATCH_SIZE);
+            while (game != null && batch.size() < BATCH_SIZE) {
+                batch.add(game);
+                game = source.next();
+            }
+            long first = index;
+            index += batch.size();
+            inFlight.add(executor.submit(() -> workers.get().validate(first, batch)));
+            if (inFlight.size() >= 2 * threads) {
+                drain(inFlight.poll(), consumer);
+            }
+        }
+        while (!inFlight.isEmpty()) {
+            drain(inFlight.poll(), consumer);
+        }
+        return index;
+    }
+    
+    private void drain(Future<List<GameVerdict>> future, Consumer<GameVerdict> consumer) {
+        try {
+            future.get().forEach(consumer);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Validation interrupted!", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Validation failed!", e.getCause());
+        }
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+    
+    private interface GameSource {
+        PgnGame next() throws IOException;
+    }
+    
+    private static class Worker {
+        
+        private ChessMatch chessMatch;
+        private PgnReplayer replayer;
+        
+        private Worker() {
+            this.chessMatch = new ChessMatch(new TranspositionTable(CACHE_ENTRIES, TranspositionTable.ReplacementPolicy.OLDEST_STORED));
+            this.replayer = new PgnReplayer();
+        }
+        
+        private List<GameVerdict> validate(long first, List<PgnGame> batch) {
+            List<GameVerdict> verdicts = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                PgnGame game = batch.get(i);
+                try {
+                    int plies = replayer.replay(game, chessMatch);
+                    verdicts.add(new GameVerdict(first + i, true, plies, result(), game.getResult(), null));
+                } catch (ChessException e) {
+                    verdicts.add(new GameVerdict(first + i, false, replayer.getPly(), "*", game.getResult(), e.getMessage()));
+                }
+            }
+            return verdicts;
+        }
+        
+        private String result() {
+            if (chessMatch.getCheckMate()) {
+                return chessMatch.getCurrentPlayer() == Color.CYAN ? "1-0" : "0-1";
+            }
+            if (chessMatch.getStaleMate()) {
+                return "1/2-1/2";
+            }
+            return "*";
+        }
+        
+    }
+    
+}
\ No newline at end of file
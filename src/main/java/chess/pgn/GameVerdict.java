@@ -0,0 +1,58 @@
+package chess.pgn;
+
+public class GameVerdict {
+    
+    private long index;
+    private boolean legal;
+    private int plies;
+    private String result;
+    private String declaredResult;
+    private String message;
+    
+    public GameVerdict(long index, boolean legal, int plies, String result, String declaredResult, String message) {
+        this.index = index;
+        this.legal = legal;
+        this.plies = plies;
+        this.result = result;
+        this.declaredResult = declaredResult;
+        this.message = message;
+    }
+    
+    public long getIndex() {
+        return index;
+    }
+    
+    public boolean isLegal() {
+        return legal;
+    }
+    
+    public int getPlies() {
+        return plies;
+    }
+    
+    public int getIllegalPly() {
+        return legal ? -1 : plies + 1;
+    }
+    
+    public String getResult() {
+        return result;
+    }
+    
+    public String getDeclaredResult() {
+        return declaredResult;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    // The index counts from 0 like the games in the reader, but people count games from 1, as they do plies
+    @Override
+    public String toString() {
+        if (legal) {
+            return "Game " + (index + 1) + ": legal, " + plies + " plies, result " + result;
+        }
+        return "Game " + (index + 1) + ": illegal at ply " + getIllegalPly() + " (" + message + ")";
+    }
+    
+}
\ No newline at end of file
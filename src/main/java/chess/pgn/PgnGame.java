@@ -0,0 +1,34 @@
+package chess.pgn;
+
+import java.util.List;
+import java.util.Map;
+
+public class PgnGame {
+    
+    private Map<String, String> tags;
+    private List<String> moves;
+    private String result;
+    
+    public PgnGame(Map<String, String> tags, List<String> moves, String result) {
+        this.tags = tags;
+        this.moves = moves;
+        this.result = result;
+    }
+    
+    public Map<String, String> getTags() {
+        return tags;
+    }
+    
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+    
+    public List<String> getMoves() {
+        return moves;
+    }
+    
+    public String getResult() {
+        return result;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,209 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PgnReader implements Closeable {
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    
+    private ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private StringBuilder token;
+    private byte[] value;
+    private int pending;
+    private boolean eof;
+    
+    public PgnReader(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ));
+    }
+    
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.buffer.flip();
+        this.token = new StringBuilder(64);
+        this.value = new byte[256];
+        this.pending = -1;
+    }
+    
+    public PgnGame next() throws IOException {
+        Map<String, String> tags = new LinkedHashMap<>();
+        List<String> moves = new ArrayList<>();
+        
+        int c;
+        while ((c = read()) != -1) {
+            if (Character.isWhitespace(c)) {
+                continue;
+            }
+            switch (c) {
+                case '[':
+                    if (!moves.isEmpty()) {
+                        pending = c;
+                        return new PgnGame(tags, moves, "*");
+                    }
+                    readTag(tags);
+                    break;
+                case '{':
+                    skipComment();
+                    break;
+                case ';':
+                case '%':
+                    skipLine();
+                    break;
+                case '(':
+                    skipVariation();
+                    break;
+                case '$':
+                    readToken(c);
+                    break;
+                default:
+                    String s = readToken(c);
+                    if (s.equals("1-0") || s.equals("0-1") || s.equals("1/2-1/2") || s.equals("*")) {
+                        return new PgnGame(tags, moves, s);
+                    }
+                    String san = stripMoveNumber(s);
+                    if (!san.isEmpty()) {
+                        moves.add(san);
+                    }
+            }
+        }
+        if (tags.isEmpty() && moves.isEmpty()) {
+            return null;
+        }
+        return new PgnGame(tags, moves, "*");
+    }
+    
+    private int read() throws IOException {
+        if (pending != -1) {
+            int c = pending;
+            pending = -1;
+            return c;
+        }
+        if (!buffer.hasRemaining()) {
+            if (eof) {
+                return -1;
+            }
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            buffer.flip();
+            if (n < 0) {
+                eof = true;
+                return -1;
+            }
+        }
+        return buffer.get() & 0xFF;
+    }
+    
+    private void readTag(Map<String, String> tags) throws IOException {
+        token.setLength(0);
+        int c = read();
+        while (c != -1 && Character.isWhitespace(c)) {
+            c = read();
+        }
+        while (c != -1 && !Character.isWhitespace(c) && c != '"' && c != ']') {
+            token.append((char) c);
+            c = read();
+        }
+        String name = token.toString();
+        while (c != -1 && c != '"' && c != ']') {
+            c = read();
+        }
+        int length = 0;
+        if (c == '"') {
+            c = read();
+            while (c != -1 && c != '"') {
+                if (c == '\\') {
+                    c = read();
+                }
+                if (length == value.length) {
+                    value = Arrays.copyOf(value, length * 2);
+                }
+                value[length++] = (byte) c;
+                c = read();
+            }
+        }
+        while (c != -1 && c != ']') {
+            c = read();
+        }
+        tags.put(name, new String(value, 0, length, StandardCharsets.UTF_8));
+    }
+    
+    private String readToken(int first) throws IOException {
+        token.setLength(0);
+        token.append((char) first);
+        int c = read();
+        while (c != -1 && !Character.isWhitespace(c) && "[]{}();".indexOf(c) < 0) {
+            token.append((char) c);
+            c = read();
+        }
+        if (c != -1 && !Character.isWhitespace(c)) {
+            pending = c;
+        }
+        return token.toString();
+    }
+    
+    private void skipComment() throws IOException {
+        int c = read();
+        while (c != -1 && c != '}') {
+            c = read();
+        }
+    }
+    
+    private void skipLine() throws IOException {
+        int c = read();
+        while (c != -1 && c != '\n') {
+            c = read();
+        }
+    }
+    
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        int c;
+        while (depth > 0 && (c = read()) != -1) {
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipComment();
+            } else if (c == ';') {
+                skipLine();
+            }
+        }
+    }
+    
+    private static String stripMoveNumber(String s) {
+        int i = 0;
+        while (i < s.length() && Character.isDigit(s.charAt(i))) {
+            i++;
+        }
+        if (i == 0) {
+            return s;
+        }
+        while (i < s.length() && s.charAt(i) == '.') {
+            i++;
+        }
+        return s.substring(i);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+    
+}
\ No newline at end of file
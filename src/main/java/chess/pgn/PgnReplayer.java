@@ -0,0 +1,34 @@
+package chess.pgn;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.San;
+
+public class PgnReplayer {
+    
+    private int ply;
+    
+    public int replay(PgnGame game, ChessMatch chessMatch) {
+        ply = 0;
+        String fen = game.getTag("FEN");
+        chessMatch.loadFen(fen != null ? fen : ChessMatch.INITIAL_FEN);
+        
+        for (String san : game.getMoves()) {
+            if (chessMatch.getCheckMate() || chessMatch.getStaleMate()) {
+                throw new ChessException("Move " + san + " after the end of the game at ply " + (ply + 1));
+            }
+            try {
+                chessMatch.performChessMovie(San.parse(chessMatch, san));
+            } catch (ChessException e) {
+                throw new ChessException(e.getMessage() + " at ply " + (ply + 1));
+            }
+            ply++;
+        }
+        return ply;
+    }
+    
+    public int getPly() {
+        return ply;
+    }
+    
+}
\ No newline at end of file
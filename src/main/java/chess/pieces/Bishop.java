@@ -1,9 +1,11 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Bishop extends ChessPiece {
     
@@ -18,62 +20,14 @@ public class Bishop extends ChessPiece {
     }
     
     @Override
-    public boolean[][] possibleMoves() {
-        
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        
-        Position p = new Position(0, 0);
-        
-        // NW
-        p.setValues((this.position.getRow() - 1), (this.position.getColumn() - 1));
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() - 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // NE
-        p.setValues((this.position.getRow() - 1), (this.position.getColumn()) + 1);
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() + 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        
-        // SE
-        p.setValues((this.position.getRow() + 1), (this.position.getColumn()) + 1);
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() + 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // SW
-        p.setValues((this.position.getRow() + 1), (this.position.getColumn() - 1));
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() - 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        return mat;
+    public PieceType getType() {
+        return PieceType.BISHOP;
+    }
+    
+    @Override
+    public long possibleMovesMask() {
+        ChessBoard board = getChessBoard();
+        return Bitboards.bishopAttacks(getSquare(), board.occupancy()) & ~board.occupancy(getColor());
     }
     
 }
\ No newline at end of file
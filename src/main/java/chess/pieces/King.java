@@ -1,10 +1,12 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class King extends ChessPiece {
     
@@ -20,97 +22,42 @@ public class King extends ChessPiece {
         return "K";
     }
     
-    private boolean canMove(Position position) {
-        ChessPiece p = (ChessPiece) getBoard().piece(position);
-        return p == null || p.getColor() != getColor();
+    @Override
+    public PieceType getType() {
+        return PieceType.KING;
     }
     
-    private boolean testRookCastling(Position position) {
-        ChessPiece p = (ChessPiece) getBoard().piece(position);
+    private boolean testRookCastling(int square) {
+        ChessPiece p = getChessBoard().piece(square);
         return ((p != null) && (p instanceof Rook) && (p.getColor() == getColor()) && (p.getMoveCount() == 0));
     }
     
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        
-        Position p = new Position(0, 0);
-        
-        // Above
-        p.setValues(position.getRow() - 1, position.getColumn());
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // Bellow
-        p.setValues(position.getRow() + 1, position.getColumn());
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // Left
-        p.setValues(position.getRow(), position.getColumn() - 1);
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // Right
-        p.setValues(position.getRow(), position.getColumn() + 1);
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // NW
-        p.setValues(position.getRow() - 1, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // NE
-        p.setValues(position.getRow() - 1, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // SW
-        p.setValues(position.getRow() + 1, position.getColumn() - 1);
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // SE
-        p.setValues(position.getRow() + 1, position.getColumn() + 1);
-        if (getBoard().positionExists(p) && this.canMove(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
+    public long possibleMovesMask() {
+        ChessBoard board = getChessBoard();
+        int square = getSquare();
+        long mask = Bitboards.kingAttacks(square) & ~board.occupancy(getColor());
         
         // #SpecialMove Castling
         if (getMoveCount() == 0 && !chessMatch.getCheck()) {
+            long occupied = board.occupancy();
+            Color opponent = (getColor() == Color.CYAN) ? Color.YELLOW : Color.CYAN;
             // SpecialMove castling Kingside Rook
-            Position posT1 = new Position(position.getRow(), position.getColumn() + 3);
-            if (testRookCastling(posT1)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-                if (getBoard().piece(p1) == null && getBoard().piece(p2) == null) {
-                    mat[position.getRow()][position.getColumn() + 2] = true;
+            if (Bitboards.column(square) + 3 < 8 && testRookCastling(square + 3)) {
+                if ((occupied & (Bitboards.bit(square + 1) | Bitboards.bit(square + 2))) == 0 && !board.isAttacked(square + 1, opponent)) {
+                    mask |= Bitboards.bit(square + 2);
                 }
             }
             // SpecialMove castling Queenside Rook
-            Position posT2 = new Position(position.getRow(), position.getColumn() - 4);
-            if (testRookCastling(posT2)) {
-                Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-                Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-                Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-                if (getBoard().piece(p1) == null && getBoard().piece(p2) == null && getBoard().piece(p3) == null) {
-                    mat[position.getRow()][position.getColumn() - 2] = true;
+            if (Bitboards.column(square) - 4 >= 0 && testRookCastling(square - 4)) {
+                if ((occupied & (Bitboards.bit(square - 1) | Bitboards.bit(square - 2) | Bitboards.bit(square - 3))) == 0 && !board.isAttacked(square - 1, opponent)) {
+                    mask |= Bitboards.bit(square - 2);
                 }
             }
             
         }
         
-        
-        return mat;
-        
+        return mask;
     }
     
 }
\ No newline at end of file
@@ -1,10 +1,12 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Pawn extends ChessPiece {
     
@@ -21,74 +23,40 @@ public class Pawn extends ChessPiece {
     }
     
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        
-        Position p = new Position(0, 0);
+    public PieceType getType() {
+        return PieceType.PAWN;
+    }
+    
+    @Override
+    public long possibleMovesMask() {
+        ChessBoard board = getChessBoard();
+        int square = getSquare();
+        long empty = ~board.occupancy();
+        long opponentPieces = board.occupancy() & ~board.occupancy(getColor());
+        long mask;
         
         if (getColor() == Color.CYAN) {
-            p.setValues(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() - 2, position.getColumn());
-            Position p2 = new Position(position.getRow() - 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount() == 0) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() - 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() - 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
+            mask = (Bitboards.bit(square) >>> 8) & empty;
+            if (getMoveCount() == 0) {
+                mask |= (mask >>> 8) & empty;
             }
-            
-            // #SpecialMove enPassant
-            if (position.getRow() == 3) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVunerable()) {
-                    mat[left.getRow() - 1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVunerable()) {
-                    mat[right.getRow() - 1][right.getColumn()] = true;
-                }
-            }
-            
         } else {
-            p.setValues(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() + 2, position.getColumn());
-            Position p2 = new Position(position.getRow() + 1, position.getColumn());
-            if (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount() == 0) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() + 1, position.getColumn() - 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow() + 1, position.getColumn() + 1);
-            if (getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-                mat[p.getRow()][p.getColumn()] = true;
+            mask = (Bitboards.bit(square) << 8) & empty;
+            if (getMoveCount() == 0) {
+                mask |= (mask << 8) & empty;
             }
-    
-            // #SpecialMove enPassant
-            if (position.getRow() == 4) {
-                Position left = new Position(position.getRow(), position.getColumn() - 1);
-                if (getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVunerable()) {
-                    mat[left.getRow() + 1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn() + 1);
-                if (getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVunerable()) {
-                    mat[right.getRow() + 1][right.getColumn()] = true;
-                }
+        }
+        mask |= Bitboards.pawnAttacks(getColor(), square) & opponentPieces;
+        
+        // #SpecialMove enPassant
+        ChessPiece vulnerable = chessMatch.getEnPassantVunerable();
+        if (vulnerable != null && vulnerable.getColor() != getColor()) {
+            int vulnerableSquare = vulnerable.getSquare();
+            if (board.piece(vulnerableSquare) == vulnerable && Bitboards.row(vulnerableSquare) == Bitboards.row(square)
+                    && Math.abs(Bitboards.column(vulnerableSquare) - Bitboards.column(square)) == 1) {
+                mask |= Bitboards.bit(getColor() == Color.CYAN ? vulnerableSquare - 8 : vulnerableSquare + 8);
             }
-            
         }
-        return mat;
+        return mask;
     }
 }
\ No newline at end of file
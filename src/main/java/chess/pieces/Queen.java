@@ -1,9 +1,11 @@
 package chess.pieces;
 
 import boardgame.Board;
-import boardgame.Position;
+import chess.Bitboards;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Queen extends ChessPiece {
     
@@ -18,111 +20,14 @@ public class Queen extends ChessPiece {
     }
     
     @Override
-    public boolean[][] possibleMoves() {
-        
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        
-        Position p = new Position(0, 0);
-        
-        // Above
-        p.setValues((this.position.getRow() - 1), (this.position.getColumn()));
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setRow(p.getRow() - 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // Left
-        p.setValues((this.position.getRow()), (this.position.getColumn()) - 1);
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setColumn(p.getColumn() - 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        
-        // Right
-        p.setValues((this.position.getRow()), (this.position.getColumn()) + 1);
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setColumn(p.getColumn() + 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // Below
-        p.setValues((this.position.getRow() + 1), (this.position.getColumn()));
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setRow(p.getRow() + 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // NW
-        p.setValues((this.position.getRow() - 1), (this.position.getColumn() - 1));
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() - 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // NE
-        p.setValues((this.position.getRow() - 1), (this.position.getColumn()) + 1);
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() - 1, p.getColumn() + 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        
-        // SE
-        p.setValues((this.position.getRow() + 1), (this.position.getColumn()) + 1);
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() + 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        // SW
-        p.setValues((this.position.getRow() + 1), (this.position.getColumn() - 1));
-        while ((getBoard().positionExists(p)) && (!getBoard().thereIsAPiece(p))) {
-            
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow() + 1, p.getColumn() - 1);
-            
-        }
-        if (getBoard().positionExists(p) && this.isThereOpponentPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        return mat;
+    public PieceType getType() {
+        return PieceType.QUEEN;
+    }
+    
+    @Override
+    public long possibleMovesMask() {
+        ChessBoard board = getChessBoard();
+        return Bitboards.queenAttacks(getSquare(), board.occupancy()) & ~board.occupancy(getColor());
     }
     
 }
\ No newline at end of file
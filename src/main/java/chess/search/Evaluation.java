@@ -0,0 +1,79 @@
+package chess.search;
+
+import chess.Bitboards;
+import chess.ChessBoard;
+import chess.Color;
+import chess.PawnCache;
+import chess.PawnStructure;
+import chess.PieceSquareTables;
+import chess.PieceType;
+
+public class Evaluation {
+    
+    private static final int[] MOBILITY = {0, 4, 5, 3, 1, 0};
+    private static final int KING_ZONE_ATTACK = 6;
+    private static final int PAWN_SHIELD = 10;
+    private static final Color[] COLORS = Color.values();
+    private static final PieceType[] TYPES = PieceType.values();
+    
+    private Evaluation() {
+    }
+    
+    public static int evaluate(ChessBoard board, Color side, PawnCache pawnCache) {
+        int middlegame = board.getMiddlegame(Color.CYAN) - board.getMiddlegame(Color.YELLOW);
+        int endgame = board.getEndgame(Color.CYAN) - board.getEndgame(Color.YELLOW);
+        
+        PawnStructure pawns = pawnCache.get(board);
+        long occupied = board.occupancy();
+        for (Color color : COLORS) {
+            int sign = (color == Color.CYAN) ? 1 : -1;
+            Color enemy = (color == Color.CYAN) ? Color.YELLOW : Color.CYAN;
+            long available = ~board.occupancy(color);
+            long enemyZone = Bitboards.kingAttacks(board.kingSquare(enemy));
+            
+            // Mobility and attacks on the enemy king zone share one attack set per piece
+            int mobility = 0;
+            int kingAttacks = 0;
+            for (int t = PieceType.KNIGHT.ordinal(); t <= PieceType.QUEEN.ordinal(); t++) {
+                long pieces = board.pieces(color, TYPES[t]);
+                while (pieces != 0) {
+                    int square = Long.numberOfTrailingZeros(pieces);
+                    pieces &= pieces - 1;
+                    long attacks = attacks(TYPES[t], square, occupied);
+                    mobility += MOBILITY[t] * Long.bitCount(attacks & available);
+                    kingAttacks += Long.bitCount(attacks & enemyZone);
+                }
+            }
+            int structure = pawns.getPenalty(color);
+            int passed = pawns.getPassedBonus(color);
+            middlegame += sign * (mobility + structure + passed + pawnShield(board, color) + KING_ZONE_ATTACK * kingAttacks);
+            endgame += sign * (mobility + structure + 2 * passed);
+        }
+        
+        int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+        return (side == Color.CYAN) ? score : -score;
+    }
+    
+    static int pawnShield(ChessBoard board, Color color) {
+        int king = board.kingSquare(color);
+        long zone = Bitboards.kingAttacks(king);
+        long front = (color == Color.CYAN) ? (zone | zone >>> 8) & ~(-1L << (Bitboards.row(king) << 3))
+                : (Bitboards.row(king) == 7) ? 0L : (zone | zone << 8) & (-1L << ((Bitboards.row(king) + 1) << 3));
+        return PAWN_SHIELD * Long.bitCount(front & board.pieces(color, PieceType.PAWN));
+    }
+    
+    private static long attacks(PieceType type, int square, long occupied) {
+        switch (type) {
+            case KNIGHT:
+                return Bitboards.knightAttacks(square);
+            case BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            default:
+                return Bitboards.queenAttacks(square, occupied);
+        }
+    }
+    
+}
\ No newline at end of file
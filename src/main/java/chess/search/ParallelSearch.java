@@ -0,0 +1,131 @@
+package chess.search;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.TranspositionTable;
+import chess.tablebase.Tablebase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ParallelSearch implements AutoCloseable {
+    
+    private static final int CACHE_ENTRIES = 1 << 10;
+    
+    private ChessMatch chessMatch;
+    private TranspositionTable table;
+    private ExecutorService executor;
+    private ChessMatch[] copies;
+    private Search[] searches;
+    private Tablebase tablebase;
+    
+    public ParallelSearch(ChessMatch chessMatch, int maxThreads) {
+        this(chessMatch, maxThreads, new TranspositionTable(1 << 20, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE));
+    }
+    
+    public ParallelSearch(ChessMatch chessMatch, int maxThreads, TranspositionTable table) {
+        if (maxThreads < 1) {
+            throw new IllegalArgumentException("There must be at least 1 search thread!");
+        }
+        this.chessMatch = chessMatch;
+        this.table = table;
+        this.executor = Executors.newFixedThreadPool(maxThreads, r -> {
+            Thread t = new Thread(r, "search");
+            t.setDaemon(true);
+            return t;
+        });
+        this.copies = new ChessMatch[maxThreads];
+        this.searches = new Search[maxThreads];
+    }
+    
+    public SearchResult search(SearchLimits limits) {
+        return search(limits, this.searches.length);
+    }
+    
+    // Lazy SMP: every thread searches its own copy of the match and they only share the table;
+    // odd helpers start one ply deeper so the threads spread over different parts of the tree
+    public SearchResult search(SearchLimits limits, int threads) {
+        if (threads < 1 || threads > this.searches.length) {
+            throw new IllegalArgumentException("Thread count must be between 1 and " + this.searches.length + "!");
+        }
+        String fen = this.chessMatch.toFen();
+        long[] played = this.chessMatch.getPlayedKeys();
+        for (int i = 0; i < threads; i++) {
+            if (this.copies[i] == null) {
+                this.copies[i] = new ChessMatch(fen, new TranspositionTable(CACHE_ENTRIES, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE));
+                this.searches[i] = new Search(this.copies[i], this.table);
+                this.searches[i].setTablebase(this.tablebase);
+            } else {
+                this.copies[i].loadFen(fen);
+            }
+            this.searches[i].start();
+        }
+        
+        long start = System.nanoTime();
+        List<Future<SearchResult>> futures = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Search search = this.searches[i];
+            int firstDepth = 1 + (i & 1);
+            futures.add(this.executor.submit(() -> search.search(limits, firstDepth, played)));
+        }
+        
+        SearchResult best = result(futures.get(0));
+        for (int i = 1; i < threads; i++) {
+            this.searches[i].stop();
+        }
+        
+        long[] threadNodes = new long[threads];
+        long nodes = 0;
+        for (int i = 0; i < threads; i++) {
+            SearchResult result = (i == 0) ? best : result(futures.get(i));
+            if (result.getDepth() > best.getDepth() && result.getBestMove() != Move.NONE) {
+                best = result;
+            }
+            threadNodes[i] = result.getNodes();
+            nodes += result.getNodes();
+        }
+        return new SearchResult(best.getBestMove(), best.getScore(), best.getDepth(), nodes, System.nanoTime() - start, threadNodes);
+    }
+    
+    public void stop() {
+        for (Search search : this.searches) {
+            if (search != null) {
+                search.stop();
+            }
+        }
+    }
+    
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        for (Search search : this.searches) {
+            if (search != null) {
+                search.setTablebase(tablebase);
+            }
+        }
+    }
+    
+    public TranspositionTable getTable() {
+        return this.table;
+    }
+    
+    private SearchResult result(Future<SearchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Search interrupted!", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Search failed!", e.getCause());
+        }
+    }
+    
+    @Override
+    public void close() {
+        this.executor.shutdown();
+    }
+    
+}
\ No newline at end of file
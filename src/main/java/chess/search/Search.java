@@ -0,0 +1,345 @@
+package chess.search;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Move;
+import chess.PawnCache;
+import chess.MoveList;
+import chess.PieceType;
+import chess.TranspositionTable;
+import chess.tablebase.Tablebase;
+
+public class Search {
+    
+    public static final int INFINITY = 1_000_000;
+    public static final int MATE = 100_000;
+    public static final int MAX_PLY = 128;
+    
+    private static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+    private static final int EXACT = 0;
+    private static final int LOWER = 1;
+    private static final int UPPER = 2;
+    private static final int CHECK_INTERVAL = 1023;
+    
+    private ChessMatch chessMatch;
+    private ChessBoard board;
+    private TranspositionTable table;
+    private PawnCache pawnCache;
+    private MoveList[] moves;
+    private int[][] scores;
+    private int[][] killers;
+    private long[] keys;
+    private long[] played;
+    private Tablebase tablebase;
+    
+    private long nodes;
+    private long maxNodes;
+    private long deadline;
+    private boolean aborted;
+    private volatile boolean stopped;
+    private int rootMove;
+    private int rootScore;
+    
+    public Search(ChessMatch chessMatch) {
+        this(chessMatch, new TranspositionTable(1 << 18, TranspositionTable.ReplacementPolicy.ALWAYS_REPLACE));
+    }
+    
+    public Search(ChessMatch chessMatch, TranspositionTable table) {
+        this.chessMatch = chessMatch;
+        this.board = chessMatch.getBoard();
+        this.table = table;
+        this.pawnCache = new PawnCache(1 << 12);
+        this.moves = new MoveList[MAX_PLY];
+        this.scores = new int[MAX_PLY][MoveList.MAX_MOVES];
+        this.killers = new int[MAX_PLY][2];
+        this.keys = new long[MAX_PLY];
+        for (int i = 0; i < MAX_PLY; i++) {
+            this.moves[i] = new MoveList();
+        }
+    }
+    
+    public SearchResult search(SearchLimits limits) {
+        this.stopped = false;
+        return search(limits, 1, this.chessMatch.getPlayedKeys());
+    }
+    
+    // The played keys are the match's positions before the root, the root last, so repetitions of them count as draws
+    SearchResult search(SearchLimits limits, int firstDepth, long[] played) {
+        long start = System.nanoTime();
+        this.played = played;
+        this.nodes = 0;
+        this.maxNodes = limits.getNodes();
+        this.deadline = (limits.getTimeMillis() == Long.MAX_VALUE) ? Long.MAX_VALUE : start + limits.getTimeMillis() * 1_000_000L;
+        this.aborted = false;
+        for (int[] k : this.killers) {
+            k[0] = Move.NONE;
+            k[1] = Move.NONE;
+        }
+        
+        if (this.chessMatch.getCheckMate() || this.chessMatch.getStaleMate()) {
+            return new SearchResult(Move.NONE, this.chessMatch.getCheckMate() ? -MATE : 0, 0, 0, System.nanoTime() - start);
+        }
+        
+        int bestMove = Move.NONE;
+        int bestScore = 0;
+        int completed = 0;
+        for (int depth = Math.min(firstDepth, limits.getDepth()); depth <= limits.getDepth(); depth++) {
+            this.rootMove = Move.NONE;
+            int score = search(depth, -INFINITY, INFINITY, 0);
+            if (this.aborted) {
+                // A partial iteration searches the previous best move first, so its best move is still usable
+                if (this.rootMove != Move.NONE) {
+                    bestMove = this.rootMove;
+                    bestScore = this.rootScore;
+                }
+                break;
+            }
+            bestMove = this.rootMove;
+            bestScore = score;
+            completed = depth;
+            if (Math.abs(score) >= MATE - depth) {
+                break;
+            }
+        }
+        if (bestMove == Move.NONE) {
+            bestMove = fallbackMove();
+        }
+        return new SearchResult(bestMove, bestScore, completed, this.nodes, System.nanoTime() - start);
+    }
+    
+    // Stopped before any root move was searched: the table's move if it is still legal here, else the first legal move
+    private int fallbackMove() {
+        long entry = this.table.get(this.chessMatch.getKey());
+        int ttMove = (entry == TranspositionTable.MISSING) ? Move.NONE : (int) (entry & 0x7FFF);
+        MoveList list = this.moves[0];
+        this.chessMatch.legalMoves(list);
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == ttMove) {
+                return ttMove;
+            }
+        }
+        return list.get(0);
+    }
+    
+    public void stop() {
+        this.stopped = true;
+    }
+    
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+    
+    void start() {
+        this.stopped = false;
+    }
+    
+    public long getNodes() {
+        return this.nodes;
+    }
+    
+    private int search(int depth, int alpha, int beta, int ply) {
+        this.keys[ply] = this.chessMatch.getKey();
+        if (ply > 0 && isDraw(ply)) {
+            return 0;
+        }
+        if (ply > 0 && this.tablebase != null && Long.bitCount(this.board.occupancy()) <= Tablebase.MAX_PIECES) {
+            int result = this.tablebase.probe(this.chessMatch);
+            if (result != Tablebase.NONE) {
+                return Tablebase.isDraw(result) ? 0 : Tablebase.isWin(result)
+                        ? MATE - ply - Tablebase.distance(result) : -MATE + ply + Tablebase.distance(result);
+            }
+        }
+        boolean inCheck = this.chessMatch.getCheck();
+        if (inCheck) {
+            depth++;
+        }
+        if (depth <= 0 || ply >= MAX_PLY - 1) {
+            return quiescence(alpha, beta, ply);
+        }
+        if (shouldStop()) {
+            return 0;
+        }
+        
+        long key = this.keys[ply];
+        long entry = this.table.get(key);
+        int ttMove = Move.NONE;
+        if (entry != TranspositionTable.MISSING) {
+            ttMove = (int) (entry & 0x7FFF);
+            if (ply > 0 && ((entry >>> 16) & 0xFF) >= depth) {
+                int score = fromTable((int) (entry >> 32), ply);
+                int bound = (int) (entry >>> 24) & 3;
+                if (bound == EXACT || (bound == LOWER && score >= beta) || (bound == UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        
+        MoveList list = this.moves[ply];
+        this.chessMatch.legalMoves(list);
+        if (list.isEmpty()) {
+            return inCheck ? -MATE + ply : 0;
+        }
+        scoreMoves(list, ply, ttMove);
+        
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = nextMove(list, ply, i);
+            boolean quiet = !isCapture(move) && Move.promotion(move) == null;
+            this.chessMatch.playMove(move);
+            int score = -search(depth - 1, -beta, -alpha, ply + 1);
+            this.chessMatch.undoLastMove();
+            if (this.aborted) {
+                return 0;
+            }
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    this.rootMove = move;
+                    this.rootScore = score;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                if (quiet && this.killers[ply][0] != move) {
+                    this.killers[ply][1] = this.killers[ply][0];
+                    this.killers[ply][0] = move;
+                }
+                break;
+            }
+        }
+        
+        int bound = (best >= beta) ? LOWER : (best > originalAlpha) ? EXACT : UPPER;
+        this.table.put(key, (bestMove & 0x7FFF) | ((long) depth << 16) | ((long) bound << 24) | ((long) toTable(best, ply) << 32));
+        return best;
+    }
+    
+    private int quiescence(int alpha, int beta, int ply) {
+        if (shouldStop()) {
+            return 0;
+        }
+        MoveList list = this.moves[ply];
+        this.chessMatch.legalMoves(list);
+        if (list.isEmpty()) {
+            return this.chessMatch.getCheck() ? -MATE + ply : 0;
+        }
+        int standPat = Evaluation.evaluate(this.board, this.chessMatch.getCurrentPlayer(), this.pawnCache);
+        if (standPat >= beta || ply >= MAX_PLY - 1) {
+            return standPat;
+        }
+        if (standPat > alpha) {
+            alpha = standPat;
+        }
+        
+        scoreMoves(list, ply, Move.NONE);
+        for (int i = 0; i < list.size(); i++) {
+            int move = nextMove(list, ply, i);
+            PieceType promotion = Move.promotion(move);
+            if ((promotion != null && promotion != PieceType.QUEEN) || (promotion == null && !isCapture(move))) {
+                continue;
+            }
+            this.chessMatch.playMove(move);
+            int score = -quiescence(-beta, -alpha, ply + 1);
+            this.chessMatch.undoLastMove();
+            if (this.aborted) {
+                return 0;
+            }
+            if (score >= beta) {
+                return score;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+        }
+        return alpha;
+    }
+    
+    private boolean shouldStop() {
+        this.nodes++;
+        if (this.nodes >= this.maxNodes || this.stopped
+                || ((this.nodes & CHECK_INTERVAL) == 0 && this.deadline != Long.MAX_VALUE && System.nanoTime() >= this.deadline)) {
+            this.aborted = true;
+        }
+        return this.aborted;
+    }
+    
+    private boolean isDraw(int ply) {
+        int halfMoveClock = this.chessMatch.getHalfMoveClock();
+        if (halfMoveClock >= 100) {
+            return true;
+        }
+        // Below ply 0 the positions come from the match itself, the root being the last played one
+        int root = this.played.length - 1;
+        for (int i = ply - 4; i >= ply - halfMoveClock && i >= -root; i -= 2) {
+            if (((i >= 0) ? this.keys[i] : this.played[root + i]) == this.keys[ply]) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private boolean isCapture(int move) {
+        int source = Move.source(move);
+        int target = Move.target(move);
+        return this.board.piece(target) != null
+                || (this.board.piece(source).getType() == PieceType.PAWN && (source & 7) != (target & 7));
+    }
+    
+    private void scoreMoves(MoveList list, int ply, int ttMove) {
+        int[] s = this.scores[ply];
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            PieceType promotion = Move.promotion(move);
+            if (move == ttMove) {
+                s[i] = 1_000_000;
+            } else if (isCapture(move)) {
+                ChessPiece victim = this.board.piece(Move.target(move));
+                int value = (victim == null) ? VALUES[PieceType.PAWN.ordinal()] : VALUES[victim.getType().ordinal()];
+                s[i] = 100_000 + 10 * value - VALUES[this.board.piece(Move.source(move)).getType().ordinal()] / 10;
+            } else if (promotion != null) {
+                s[i] = (promotion == PieceType.QUEEN) ? 90_000 : -1;
+            } else if (move == this.killers[ply][0]) {
+                s[i] = 80_000;
+            } else if (move == this.killers[ply][1]) {
+                s[i] = 79_000;
+            } else {
+                s[i] = 0;
+            }
+        }
+    }
+    
+    private int nextMove(MoveList list, int ply, int index) {
+        int[] s = this.scores[ply];
+        int best = index;
+        for (int i = index + 1; i < list.size(); i++) {
+            if (s[i] > s[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            list.swap(index, best);
+            int score = s[index];
+            s[index] = s[best];
+            s[best] = score;
+        }
+        return list.get(index);
+    }
+    
+    private static int toTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+    
+    private static int fromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+    
+}
\ No newline at end of file
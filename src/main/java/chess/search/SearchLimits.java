@@ -0,0 +1,44 @@
+package chess.search;
+
+public class SearchLimits {
+    
+    public static final int MAX_DEPTH = 64;
+    
+    private int depth;
+    private long nodes;
+    private long timeMillis;
+    
+    public SearchLimits(int depth, long nodes, long timeMillis) {
+        if (depth < 1 || nodes < 1 || timeMillis < 1) {
+            throw new IllegalArgumentException("Search limits must be positive!");
+        }
+        this.depth = Math.min(depth, MAX_DEPTH);
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+    
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+    
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes, Long.MAX_VALUE);
+    }
+    
+    public static SearchLimits time(long timeMillis) {
+        return new SearchLimits(MAX_DEPTH, Long.MAX_VALUE, timeMillis);
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package chess.search;
+
+import chess.Move;
+
+import java.util.Locale;
+
+public class SearchResult {
+    
+    private int bestMove;
+    private int score;
+    private int depth;
+    private long nodes;
+    private long nanos;
+    private long[] threadNodes;
+    
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos) {
+        this(bestMove, score, depth, nodes, nanos, new long[]{nodes});
+    }
+    
+    public SearchResult(int bestMove, int score, int depth, long nodes, long nanos, long[] threadNodes) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.threadNodes = threadNodes.clone();
+    }
+    
+    public int getBestMove() {
+        return bestMove;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public long getNanos() {
+        return nanos;
+    }
+    
+    public long[] getThreadNodes() {
+        return threadNodes.clone();
+    }
+    
+    public int getThreads() {
+        return threadNodes.length;
+    }
+    
+    public long getNodesPerSecond() {
+        return nodes * 1_000_000_000L / Math.max(nanos, 1L);
+    }
+    
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+    }
+    
+    @Override
+    public String toString() {
+        String move = (bestMove == Move.NONE) ? "none" : Move.toString(bestMove);
+        String value = isMate() ? "mate " + (score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2) : "cp " + score;
+        return String.format(Locale.ROOT, "depth %d %s nodes %d nps %d threads %d bestmove %s", depth, value, nodes, getNodesPerSecond(), getThreads(), move);
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+package chess.server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// Direct buffers of one size, reused across connections so that connection churn does not allocate native memory
+public class BufferPool {
+    
+    private int bufferSize;
+    private int maxPooled;
+    private ArrayDeque<ByteBuffer> free;
+    private long created;
+    
+    public BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+        this.free = new ArrayDeque<>();
+    }
+    
+    public synchronized ByteBuffer acquire() {
+        ByteBuffer buffer = this.free.pollFirst();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(this.bufferSize);
+            this.created++;
+        }
+        return buffer;
+    }
+    
+    public synchronized void release(ByteBuffer buffer) {
+        buffer.clear();
+        if (this.free.size() < this.maxPooled) {
+            this.free.addFirst(buffer);
+        }
+    }
+    
+    public synchronized long getCreated() {
+        return created;
+    }
+    
+    public synchronized int getPooled() {
+        return this.free.size();
+    }
+    
+}
\ No newline at end of file
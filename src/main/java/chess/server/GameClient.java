@@ -0,0 +1,190 @@
+package chess.server;
+
+import chess.ChessException;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Blocking client for the GameServer line protocol. Boards of watched matches are kept up to date from the
+// UPDATE lines, which are also queued for pollUpdate and awaitUpdate
+public class GameClient implements Closeable {
+    
+    public static final char EMPTY = '-';
+    
+    private SocketChannel channel;
+    private ByteBuffer input;
+    private ByteBuffer output;
+    private byte[] line;
+    private ArrayDeque<String> updates;
+    private Map<Long, char[]> boards;
+    
+    public GameClient(int port) throws IOException {
+        this.channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.channel.socket().setTcpNoDelay(true);
+        this.input = ByteBuffer.allocateDirect(GameServer.OUTPUT_SIZE);
+        this.output = ByteBuffer.allocateDirect(GameServer.MAX_LINE);
+        this.line = new byte[GameServer.OUTPUT_SIZE];
+        this.updates = new ArrayDeque<>();
+        this.boards = new HashMap<>();
+    }
+    
+    public long newMatch() throws IOException {
+        return Long.parseLong(request("NEW"));
+    }
+    
+    public long newMatch(String fen) throws IOException {
+        return Long.parseLong(request("NEW " + fen));
+    }
+    
+    // Returns the status after the move: PLAY, CHECK, CHECKMATE or STALEMATE
+    public String move(long id, String move) throws IOException {
+        String response = request("MOVE " + id + " " + move);
+        return response.substring(response.indexOf(' ') + 1);
+    }
+    
+    public List<String> legalMoves(long id) throws IOException {
+        String[] parts = request("MOVES " + id).split(" ");
+        return new ArrayList<>(Arrays.asList(parts).subList(1, parts.length));
+    }
+    
+    public String fen(long id) throws IOException {
+        String response = request("FEN " + id);
+        return response.substring(response.indexOf(' ') + 1);
+    }
+    
+    // Subscribes to the match and returns its board, a1 last as in the engine's square order; the array is
+    // updated in place as moves arrive
+    public char[] watch(long id) throws IOException {
+        String response = request("WATCH " + id);
+        char[] board = new char[64];
+        Arrays.fill(board, EMPTY);
+        String placement = response.substring(response.indexOf(' ') + 1);
+        int square = 0;
+        for (int i = 0; i < placement.length() && placement.charAt(i) != ' '; i++) {
+            char c = placement.charAt(i);
+            if (c >= '1' && c <= '8') {
+                square += c - '0';
+            } else if (c != '/') {
+                board[square++] = c;
+            }
+        }
+        this.boards.put(id, board);
+        return board;
+    }
+    
+    public void unwatch(long id) throws IOException {
+        request("UNWATCH " + id);
+        this.boards.remove(id);
+    }
+    
+    public void end(long id) throws IOException {
+        request("END " + id);
+        this.boards.remove(id);
+    }
+    
+    public char[] board(long id) {
+        return this.boards.get(id);
+    }
+    
+    // The next update already received, without waiting; null when there is none
+    public String pollUpdate() throws IOException {
+        String received;
+        while (this.updates.isEmpty() && (received = readLine(false)) != null) {
+            receive(received);
+        }
+        return this.updates.pollFirst();
+    }
+    
+    public String awaitUpdate() throws IOException {
+        while (this.updates.isEmpty()) {
+            receive(readLine(true));
+        }
+        return this.updates.pollFirst();
+    }
+    
+    private String request(String request) throws IOException {
+        this.output.clear();
+        for (int i = 0; i < request.length(); i++) {
+            this.output.put((byte) request.charAt(i));
+        }
+        this.output.put((byte) '\n').flip();
+        while (this.output.hasRemaining()) {
+            this.channel.write(this.output);
+        }
+        while (true) {
+            String response = readLine(true);
+            if (response.startsWith("UPDATE ")) {
+                receive(response);
+            } else if (response.startsWith("OK")) {
+                return response.substring(Math.min(3, response.length()));
+            } else {
+                throw new ChessException(response.startsWith("ERR ") ? response.substring(4) : response);
+            }
+        }
+    }
+    
+    private void receive(String update) {
+        String[] parts = update.split(" ");
+        char[] board = this.boards.get(Long.parseLong(parts[1]));
+        if (board != null) {
+            for (int i = 3; i < parts.length; i++) {
+                String change = parts[i];
+                board[('8' - change.charAt(1)) * 8 + (change.charAt(0) - 'a')] = change.charAt(2);
+            }
+        }
+        this.updates.addLast(update);
+    }
+    
+    private String readLine(boolean block) throws IOException {
+        while (true) {
+            this.input.flip();
+            for (int i = this.input.position(); i < this.input.limit(); i++) {
+                if (this.input.get(i) == '\n') {
+                    int length = i - this.input.position();
+                    this.input.get(this.line, 0, length).get();
+                    this.input.compact();
+                    return new String(this.line, 0, length, StandardCharsets.US_ASCII);
+                }
+            }
+            this.input.compact();
+            if (!this.input.hasRemaining()) {
+                throw new IOException("Server line longer than " + this.input.capacity() + " bytes");
+            }
+            int read;
+            if (block) {
+                read = this.channel.read(this.input);
+            } else {
+                this.channel.configureBlocking(false);
+                try {
+                    read = this.channel.read(this.input);
+                } finally {
+                    this.channel.configureBlocking(true);
+                }
+                if (read == 0) {
+                    return null;
+                }
+            }
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+    
+}
\ No newline at end of file
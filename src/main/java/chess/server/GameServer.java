@@ -0,0 +1,512 @@
+package chess.server;
+
+import boardgame.BoardException;
+import chess.ChessException;
+import chess.Move;
+import chess.MoveList;
+import chess.PositionSnapshot;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Hosts many matches on a few event loop threads. Requests are text lines, answered in order with OK or ERR:
+//   NEW [fen]           -> OK <id>
+//   MOVE <id> <e2e4>    -> OK <id> PLAY|CHECK|CHECKMATE|STALEMATE
+//   FEN <id>            -> OK <id> <fen>
+//   END <id>            -> OK <id>
+//   MOVES <id>          -> OK <id> <legal moves...>
+//   WATCH <id>          -> OK <id> <fen>, then UPDATE <id> <status> <changed squares...> after every move
+//   UNWATCH <id>        -> OK <id>
+// Updates only carry the squares a move changed, such as e2- e4P (lowercase for YELLOW pieces).
+// Matches outlive the connection that created them, so both players can connect separately.
+// Each connection belongs to one loop; matches live in a MatchRegistry shared by all loops. When the registry
+// has a journal, answers to NEW, MOVE and END, and the match state shown by FEN, MOVES and WATCH, are held back
+// until the journal has everything they depend on on disk; if the journal cannot be written, the connections
+// still holding answers get an ERR instead and are closed.
+public class GameServer implements AutoCloseable {
+    
+    static final int MAX_LINE = 256;
+    static final int OUTPUT_SIZE = 8192;
+    private static final int POOLED_BUFFERS = 1024;
+    
+    private ServerSocketChannel server;
+    private MatchRegistry registry;
+    private MatchJournal journal;
+    private EventLoop[] loops;
+    private BufferPool inputs;
+    private BufferPool outputs;
+    private int nextLoop;
+    private volatile boolean running;
+    
+    public GameServer(int port, int maxSessions) throws IOException {
+        this(port, new MatchRegistry(maxSessions), 1);
+    }
+    
+    public GameServer(int port, MatchRegistry registry, int loops) throws IOException {
+        if (loops < 1) {
+            throw new IllegalArgumentException("There must be at least 1 event loop!");
+        }
+        this.registry = registry;
+        this.journal = registry.getJournal();
+        this.inputs = new BufferPool(MAX_LINE, POOLED_BUFFERS);
+        this.outputs = new BufferPool(OUTPUT_SIZE, POOLED_BUFFERS);
+        this.loops = new EventLoop[loops];
+        for (int i = 0; i < loops; i++) {
+            this.loops[i] = new EventLoop(i);
+        }
+        this.server = ServerSocketChannel.open();
+        this.server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        this.server.configureBlocking(false);
+        this.server.register(this.loops[0].selector, SelectionKey.OP_ACCEPT);
+        if (this.journal != null) {
+            this.journal.setListener(durable -> {
+                for (EventLoop loop : this.loops) {
+                    loop.execute(loop::release);
+                }
+            });
+        }
+    }
+    
+    public int getPort() {
+        return this.server.socket().getLocalPort();
+    }
+    
+    public MatchRegistry getRegistry() {
+        return registry;
+    }
+    
+    public int getSessions() {
+        return this.registry.size();
+    }
+    
+    // Time spent applying each MOVE, recorded by the event loops; read it once the load has stopped
+    public LatencyHistogram getLatencies() {
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (EventLoop loop : this.loops) {
+            latencies.add(loop.latencies);
+        }
+        return latencies;
+    }
+    
+    public void start() {
+        this.running = true;
+        for (EventLoop loop : this.loops) {
+            loop.thread.start();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (!this.server.isOpen()) {
+            return;
+        }
+        this.running = false;
+        for (EventLoop loop : this.loops) {
+            loop.selector.wakeup();
+        }
+        for (EventLoop loop : this.loops) {
+            if (loop.thread.isAlive()) {
+                try {
+                    loop.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        for (EventLoop loop : this.loops) {
+            for (SelectionKey key : loop.selector.keys()) {
+                loop.close(key);
+            }
+            loop.selector.close();
+        }
+        this.server.close();
+    }
+    
+    private class EventLoop implements Runnable {
+        
+        private Selector selector;
+        private Thread thread;
+        private Queue<Runnable> tasks;
+        private List<Connection> waiting;
+        private MoveList moves;
+        private byte[] line;
+        private LatencyHistogram latencies;
+        
+        private EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "game-server-" + index);
+            this.tasks = new ConcurrentLinkedQueue<>();
+            this.waiting = new ArrayList<>();
+            this.moves = new MoveList();
+            this.line = new byte[MAX_LINE];
+            this.latencies = new LatencyHistogram();
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    this.selector.select();
+                    Runnable task;
+                    while ((task = this.tasks.poll()) != null) {
+                        try {
+                            task.run();
+                        } catch (RuntimeException e) {
+                            // A task only concerns one connection, which it closes itself; the loop serves the others
+                        }
+                    }
+                    Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        try {
+                            if (!key.isValid()) {
+                                continue;
+                            }
+                            if (key.isAcceptable()) {
+                                accept();
+                                continue;
+                            }
+                            if (key.isReadable()) {
+                                read(key);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                flush(key);
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            // Only the failing connection is dropped: the loop keeps serving every other one,
+                            // and a failed accept leaves the listening socket open
+                            if (key.channel() != server) {
+                                close(key);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Game server failed!", e);
+            }
+        }
+        
+        private void execute(Runnable task) {
+            this.tasks.add(task);
+            this.selector.wakeup();
+        }
+        
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = server.accept()) != null) {
+                EventLoop loop = loops[nextLoop++ % loops.length];
+                SocketChannel accepted = channel;
+                if (loop == this) {
+                    register(accepted);
+                } else {
+                    loop.execute(() -> loop.register(accepted));
+                }
+            }
+        }
+        
+        private void register(SocketChannel channel) {
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                Connection connection = new Connection(channel, this, inputs.acquire(), outputs.acquire());
+                connection.key = channel.register(this.selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // Already gone
+                }
+            }
+        }
+        
+        private void read(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            ByteBuffer input = connection.input;
+            if (connection.channel.read(input) < 0) {
+                close(key);
+                return;
+            }
+            if (connection.closing) {
+                input.clear();
+                return;
+            }
+            input.flip();
+            int start = input.position();
+            for (int i = start; i < input.limit(); i++) {
+                if (input.get(i) == '\n') {
+                    int length = i - start;
+                    input.get(this.line, 0, length);
+                    input.get();
+                    if (length > 0 && this.line[length - 1] == '\r') {
+                        length--;
+                    }
+                    String response = handle(connection, new String(this.line, 0, length, StandardCharsets.US_ASCII));
+                    if (!key.isValid() || !respond(connection, response)) {
+                        close(key);
+                        return;
+                    }
+                    start = i + 1;
+                }
+            }
+            input.compact();
+            if (!input.hasRemaining()) {
+                // The answers still held back for the journal go first; flush closes the connection once all are out
+                input.clear();
+                if (!respond(connection, "ERR Line longer than " + MAX_LINE + " bytes")) {
+                    close(key);
+                    return;
+                }
+                connection.closing = true;
+            }
+            flush(key);
+        }
+        
+        private boolean respond(Connection connection, String response) {
+            // A client that stops reading its answers is dropped instead of buffering without bound
+            if (connection.output.remaining() < response.length() + 1) {
+                return false;
+            }
+            for (int i = 0; i < response.length(); i++) {
+                connection.output.put((byte) response.charAt(i));
+            }
+            connection.output.put((byte) '\n');
+            return true;
+        }
+        
+        private void flush(SelectionKey key) throws IOException {
+            Connection connection = (Connection) key.attachment();
+            if (journal != null && connection.awaiting > journal.getDurable() && journal.hasFailed()) {
+                // What is held back will never be durable, so none of it is sent and the client is let go
+                connection.output.clear();
+                respond(connection, "ERR The journal could not be written");
+                connection.awaiting = 0;
+                connection.closing = true;
+            }
+            if (journal != null && connection.awaiting > journal.getDurable()) {
+                // Group commit: the answers wait for the fsync that covers them, and leave together with it
+                if (!connection.waiting) {
+                    connection.waiting = true;
+                    this.waiting.add(connection);
+                }
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            ByteBuffer output = connection.output;
+            output.flip();
+            connection.channel.write(output);
+            output.compact();
+            if (output.position() == 0 && connection.closing) {
+                close(key);
+                return;
+            }
+            key.interestOps((output.position() > 0) ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+        
+        private void release() {
+            long durable = journal.getDurable();
+            boolean failed = journal.hasFailed();
+            Iterator<Connection> connections = this.waiting.iterator();
+            while (connections.hasNext()) {
+                Connection connection = connections.next();
+                if (connection.awaiting <= durable || failed) {
+                    connections.remove();
+                    connection.waiting = false;
+                    if (connection.key.isValid() && connection.key.attachment() == connection) {
+                        try {
+                            flush(connection.key);
+                        } catch (IOException e) {
+                            close(connection.key);
+                        }
+                    }
+                }
+            }
+        }
+        
+        // The answer to a request that changed the journal must not leave before the change is durable, nor may an
+        // answer that shows a match's state leave before the records behind that state are
+        private void journaled(Connection connection) {
+            if (journal != null) {
+                connection.awaiting = journal.getAppended();
+            }
+        }
+        
+        private String handle(Connection connection, String request) {
+            String[] parts = request.trim().split(" +", 3);
+            try {
+                switch (parts[0].toUpperCase(Locale.ROOT)) {
+                    case "NEW":
+                        long created = registry.create((parts.length > 1) ? request.trim().substring(parts[0].length()).trim() : null);
+                        journaled(connection);
+                        return "OK " + created;
+                    case "MOVE":
+                        if (parts.length < 3) {
+                            return "ERR Usage: MOVE <id> <move>";
+                        }
+                        String move = parts[2].trim().toLowerCase(Locale.ROOT);
+                        String moved = registry.apply(id(parts), session -> {
+                            PositionSnapshot before = session.getChessMatch().getSnapshot();
+                            long start = System.nanoTime();
+                            String status = session.move(move);
+                            this.latencies.record(System.nanoTime() - start);
+                            publish(session, status, before);
+                            return "OK " + session.getId() + " " + status;
+                        });
+                        journaled(connection);
+                        return moved;
+                    case "MOVES":
+                        String legal = registry.apply(id(parts), session -> {
+                            StringBuilder sb = new StringBuilder("OK ").append(session.getId());
+                            if (!session.isOver()) {
+                                session.getChessMatch().legalMoves(this.moves);
+                                for (int i = 0; i < this.moves.size(); i++) {
+                                    sb.append(' ').append(Move.toString(this.moves.get(i)));
+                                }
+                            }
+                            return sb.toString();
+                        });
+                        journaled(connection);
+                        return legal;
+                    case "FEN":
+                        String fen = registry.apply(id(parts), session -> "OK " + session.getId() + " " + session.getChessMatch().toFen());
+                        journaled(connection);
+                        return fen;
+                    case "WATCH":
+                        long id = id(parts);
+                        String response = registry.apply(id, session -> {
+                            if (!session.getWatchers().contains(connection)) {
+                                session.getWatchers().add(connection);
+                            }
+                            return "OK " + session.getId() + " " + session.getChessMatch().toFen();
+                        });
+                        if (!connection.watched.contains(id)) {
+                            connection.watched.add(id);
+                        }
+                        journaled(connection);
+                        return response;
+                    case "UNWATCH":
+                        id = id(parts);
+                        registry.apply(id, session -> session.getWatchers().remove(connection));
+                        connection.watched.remove(Long.valueOf(id));
+                        return "OK " + id;
+                    case "END":
+                        long ended = registry.remove(id(parts)).getId();
+                        journaled(connection);
+                        return "OK " + ended;
+                    default:
+                        return "ERR Unknown command " + parts[0];
+                }
+            } catch (BoardException e) {
+                return "ERR " + e.getMessage();
+            } catch (RuntimeException e) {
+                // Whatever a request runs into is answered, so one bad request never takes the loop down
+                return "ERR " + ((e.getMessage() != null) ? e.getMessage() : e.getClass().getSimpleName());
+            }
+        }
+        
+        // Runs under the match's stripe lock, so every watcher receives the updates of a match in move order.
+        // An update is held back like the mover's answer and every answer that shows the match, so nobody sees a move
+        // the journal could still lose.
+        private void publish(MatchSession session, String status, PositionSnapshot before) {
+            if (!session.hasWatchers()) {
+                return;
+            }
+            String update = "UPDATE " + session.getId() + " " + status + MatchSession.changes(before, session.getChessMatch().getSnapshot());
+            long appended = (journal != null) ? journal.getAppended() : 0;
+            for (Connection watcher : session.getWatchers().toArray(new Connection[0])) {
+                if (watcher.loop == this) {
+                    deliver(watcher, update, appended);
+                } else {
+                    watcher.loop.execute(() -> watcher.loop.deliver(watcher, update, appended));
+                }
+            }
+        }
+        
+        private void deliver(Connection watcher, String update, long appended) {
+            SelectionKey key = watcher.key;
+            if (!key.isValid() || key.attachment() != watcher) {
+                return;
+            }
+            watcher.awaiting = Math.max(watcher.awaiting, appended);
+            if (!respond(watcher, update)) {
+                close(key);
+                return;
+            }
+            try {
+                flush(key);
+            } catch (IOException e) {
+                close(key);
+            }
+        }
+        
+        private long id(String[] parts) {
+            if (parts.length < 2) {
+                throw new ChessException("Missing match id");
+            }
+            try {
+                return Long.parseLong(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new ChessException("Unknown match " + parts[1]);
+            }
+        }
+        
+        private void close(SelectionKey key) {
+            if (key.attachment() instanceof Connection) {
+                Connection connection = (Connection) key.attachment();
+                key.attach(null);
+                for (long id : connection.watched) {
+                    try {
+                        registry.apply(id, session -> session.getWatchers().remove(connection));
+                    } catch (ChessException e) {
+                        // The match has ended in the meantime
+                    }
+                }
+                inputs.release(connection.input);
+                outputs.release(connection.output);
+            }
+            key.cancel();
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+        
+    }
+    
+    static class Connection {
+        
+        private SocketChannel channel;
+        private SelectionKey key;
+        private EventLoop loop;
+        private ByteBuffer input;
+        private ByteBuffer output;
+        private List<Long> watched;
+        private long awaiting;
+        private boolean waiting;
+        private boolean closing;
+        
+        private Connection(SocketChannel channel, EventLoop loop, ByteBuffer input, ByteBuffer output) {
+            this.channel = channel;
+            this.loop = loop;
+            this.input = input;
+            this.output = output;
+            this.watched = new ArrayList<>(2);
+        }
+        
+    }
+    
+}
\ No newline at end of file
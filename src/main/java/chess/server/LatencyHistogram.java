@@ -0,0 +1,61 @@
+package chess.server;
+
+import java.util.Locale;
+
+// Fixed-size histogram with one bucket per microsecond up to 10 ms; slower samples land in the last bucket
+public class LatencyHistogram {
+    
+    private static final int BUCKETS = 10_000;
+    
+    private long[] counts;
+    private long total;
+    private long maxNanos;
+    
+    public LatencyHistogram() {
+        this.counts = new long[BUCKETS + 1];
+    }
+    
+    public void record(long nanos) {
+        this.counts[(int) Math.min(nanos / 1000, BUCKETS)]++;
+        this.total++;
+        if (nanos > this.maxNanos) {
+            this.maxNanos = nanos;
+        }
+    }
+    
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i <= BUCKETS; i++) {
+            this.counts[i] += other.counts[i];
+        }
+        this.total += other.total;
+        this.maxNanos = Math.max(this.maxNanos, other.maxNanos);
+    }
+    
+    public long getCount() {
+        return total;
+    }
+    
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+    
+    // Upper bound of the bucket holding the given percentile, in microseconds
+    public long percentileMicros(double percentile) {
+        long rank = (long) Math.ceil(this.total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i <= BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank && seen > 0) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%d samples, p50 %d us, p99 %d us, p99.9 %d us, max %d us", this.total,
+                percentileMicros(50), percentileMicros(99), percentileMicros(99.9), this.maxNanos / 1000);
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,437 @@
+package chess.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+
+// Append-only log of everything that changes the set of matches: created, moved, snapshot, ended. Records are buffered
+// in memory and a committer thread writes each batch as one frame (u32 length, u32 CRC32, records) followed
+// by a single fsync, so one disk flush covers every move submitted meanwhile. A torn frame at the end of the
+// file, left by a crash in the middle of a write, is dropped when the journal is opened again. A snapshot holds
+// the whole state of a match, so replay starts each match from its latest snapshot and skips what came before.
+public class MatchJournal implements Closeable {
+    
+    static final int MAGIC = 0x434a4e31;
+    static final byte CREATE = 1;
+    static final byte MOVE = 2;
+    static final byte END = 3;
+    static final byte SNAPSHOT = 4;
+    
+    private static final String FILE_NAME = "matches.journal";
+    private static final int FRAME_HEADER = 8;
+    private static final int MAX_BATCH = 1 << 20;
+    // The file is read through mapped windows of this size, each large enough for any frame, so its length is
+    // bounded by long offsets alone
+    private static final int WINDOW = 64 << 20;
+    
+    private Path path;
+    private FileChannel channel;
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+    private CRC32 crc;
+    private Thread committer;
+    private volatile LongConsumer listener;
+    private long appended;
+    private volatile long durable;
+    private long recovered;
+    private volatile IOException failure;
+    private boolean closed;
+    
+    public MatchJournal(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.path = directory.resolve(FILE_NAME);
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (this.channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC).flip();
+            while (header.hasRemaining()) {
+                this.channel.write(header);
+            }
+            this.channel.force(true);
+        }
+        this.recovered = validFrames();
+        if (this.recovered < this.channel.size()) {
+            this.channel.truncate(this.recovered);
+        }
+        this.channel.position(this.recovered);
+        this.pending = ByteBuffer.allocate(1 << 16);
+        this.writing = ByteBuffer.allocateDirect(FRAME_HEADER + MAX_BATCH);
+        this.crc = new CRC32();
+        this.committer = new Thread(this::commit, "match-journal");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+    
+    public Path getPath() {
+        return path;
+    }
+    
+    // Bytes of records handed to the journal so far; a change is durable once getDurable() has reached this
+    public synchronized long getAppended() {
+        return this.appended;
+    }
+    
+    public long getDurable() {
+        return this.durable;
+    }
+    
+    public boolean hasFailed() {
+        return this.failure != null;
+    }
+    
+    // Called on the committer thread after every fsync with the new durable position, and once more with the last
+    // durable position when a write fails, after which hasFailed() is true and nothing becomes durable again
+    public void setListener(LongConsumer listener) {
+        this.listener = listener;
+    }
+    
+    public void create(long id, String fen) {
+        byte[] bytes = (fen == null) ? new byte[0] : fen.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("FEN too long for the journal!");
+        }
+        synchronized (this) {
+            reserve(11 + bytes.length);
+            this.pending.put(CREATE).putLong(id).putShort((short) bytes.length).put(bytes);
+            appended(11 + bytes.length);
+        }
+    }
+    
+    public synchronized void move(long id, int move) {
+        reserve(11);
+        this.pending.put(MOVE).putLong(id).putShort((short) move);
+        appended(11);
+    }
+    
+    // The state as written by ChessMatch.toBinary
+    public synchronized void snapshot(long id, byte[] state) {
+        if (state.length > 0xFF) {
+            throw new IllegalArgumentException("Match state too long for the journal!");
+        }
+        reserve(10 + state.length);
+        this.pending.put(SNAPSHOT).putLong(id).put((byte) state.length).put(state);
+        appended(10 + state.length);
+    }
+    
+    public synchronized void end(long id) {
+        reserve(9);
+        this.pending.put(END).putLong(id);
+        appended(9);
+    }
+    
+    // Blocks until everything appended before the call is on disk
+    public void sync() throws IOException {
+        synchronized (this) {
+            long target = this.appended;
+            while (this.durable < target && this.failure == null && !this.closed) {
+                await(this);
+            }
+            if (this.failure != null) {
+                throw new IOException("The journal could not be written", this.failure);
+            }
+        }
+    }
+    
+    // Reads every intact record written before the journal was opened, in order, except the ones a later
+    // snapshot of the same match makes redundant. A snapshot's state is only valid during the visitor's call.
+    public void replay(Visitor visitor) throws IOException {
+        if (this.recovered <= 4) {
+            return;
+        }
+        try (FileChannel reader = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            Window window = new Window(reader, this.recovered);
+            Map<Long, Long> latest = new HashMap<>();
+            for (long frame = 4, next; frame < this.recovered; frame = next) {
+                int start = window.frame(frame);
+                ByteBuffer buffer = window.buffer();
+                int end = start + FRAME_HEADER + buffer.getInt(start);
+                next = frame + (end - start);
+                for (int position = start + FRAME_HEADER; position < end; position += length(buffer, position, frame)) {
+                    if (buffer.get(position) == SNAPSHOT) {
+                        latest.put(buffer.getLong(position + 1), frame + (position - start));
+                    }
+                }
+            }
+            for (long frame = 4, next; frame < this.recovered; frame = next) {
+                int start = window.frame(frame);
+                ByteBuffer buffer = window.buffer();
+                int end = start + FRAME_HEADER + buffer.getInt(start);
+                next = frame + (end - start);
+                for (int position = start + FRAME_HEADER; position < end; position += length(buffer, position, frame)) {
+                    byte type = buffer.get(position);
+                    long id = buffer.getLong(position + 1);
+                    if (type == END) {
+                        visitor.end(id);
+                        continue;
+                    }
+                    Long snapshot = latest.get(id);
+                    if (snapshot != null && snapshot > frame + (position - start)) {
+                        continue;
+                    }
+                    if (type == CREATE) {
+                        int length = buffer.getShort(position + 9) & 0xFFFF;
+                        byte[] fen = new byte[length];
+                        buffer.get(position + 11, fen);
+                        visitor.create(id, (length == 0) ? null : new String(fen, StandardCharsets.US_ASCII));
+                    } else if (type == MOVE) {
+                        visitor.move(id, buffer.getShort(position + 9) & 0xFFFF);
+                    } else {
+                        visitor.snapshot(id, buffer.slice(position + 10, buffer.get(position + 9) & 0xFF));
+                    }
+                }
+            }
+        }
+    }
+    
+    // Replaces the whole journal with one snapshot per match, which bounds both its size and the replay time.
+    // Nothing may be appended meanwhile, and everything appended before must be durable already.
+    public synchronized void rewrite(Map<Long, byte[]> states) throws IOException {
+        if (this.pending.position() != 0 || this.durable != this.appended) {
+            throw new IllegalStateException("Only a synced journal can be rewritten!");
+        }
+        Path temporary = this.path.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER + MAX_BATCH);
+            CRC32 check = new CRC32();
+            ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC).flip();
+            while (header.hasRemaining()) {
+                output.write(header);
+            }
+            frame.putLong(0);
+            for (Map.Entry<Long, byte[]> state : states.entrySet()) {
+                if (frame.remaining() < 10 + state.getValue().length) {
+                    writeFrame(output, frame.flip(), check);
+                    frame.clear().putLong(0);
+                }
+                frame.put(SNAPSHOT).putLong(state.getKey()).put((byte) state.getValue().length).put(state.getValue());
+            }
+            if (frame.position() > FRAME_HEADER) {
+                writeFrame(output, frame.flip(), check);
+            }
+            output.force(true);
+        }
+        Files.move(temporary, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(this.path.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the rename is then as durable as the file system makes it
+        }
+        this.channel.close();
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.recovered = this.channel.size();
+        this.channel.position(this.recovered);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.closed) {
+                return;
+            }
+            this.closed = true;
+            this.notifyAll();
+        }
+        try {
+            this.committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.channel.close();
+        if (this.failure != null) {
+            throw new IOException("The journal could not be written", this.failure);
+        }
+    }
+    
+    // Length of the file up to the end of its last intact frame
+    private long validFrames() throws IOException {
+        long size = this.channel.size();
+        if (size < 4) {
+            throw new IOException("Not a match journal: " + this.path);
+        }
+        Window window = new Window(this.channel, size);
+        if (window.buffer(0, 4).getInt(0) != MAGIC) {
+            throw new IOException("Not a match journal: " + this.path);
+        }
+        CRC32 check = new CRC32();
+        long position = 4;
+        while (position + FRAME_HEADER <= size) {
+            ByteBuffer buffer = window.buffer(position, FRAME_HEADER);
+            int length = buffer.getInt(window.at(position));
+            if (length <= 0 || length > MAX_BATCH || position + FRAME_HEADER + (long) length > size) {
+                break;
+            }
+            buffer = window.buffer(position, FRAME_HEADER + length);
+            int at = window.at(position);
+            check.reset();
+            check.update(buffer.slice(at + FRAME_HEADER, length));
+            if ((int) check.getValue() != buffer.getInt(at + 4)) {
+                break;
+            }
+            position += FRAME_HEADER + length;
+        }
+        return position;
+    }
+    
+    private int length(ByteBuffer buffer, int position, long frame) throws IOException {
+        switch (buffer.get(position)) {
+            case CREATE:
+                return 11 + (buffer.getShort(position + 9) & 0xFFFF);
+            case MOVE:
+                return 11;
+            case END:
+                return 9;
+            case SNAPSHOT:
+                return 10 + (buffer.get(position + 9) & 0xFF);
+            default:
+                throw new IOException("Corrupt journal record in the frame at byte " + frame + ": " + this.path);
+        }
+    }
+    
+    private void reserve(int bytes) {
+        if (this.closed) {
+            throw new IllegalStateException("The journal is closed!");
+        }
+        if (this.failure != null) {
+            throw new IllegalStateException("The journal could not be written", this.failure);
+        }
+        // Appenders wait for the committer rather than buffering without bound when the disk falls behind
+        while (this.pending.position() + bytes > MAX_BATCH) {
+            await(this);
+        }
+        if (this.pending.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.min(MAX_BATCH, Math.max(this.pending.capacity() * 2, this.pending.position() + bytes)));
+            this.pending.flip();
+            grown.put(this.pending);
+            this.pending = grown;
+        }
+    }
+    
+    private void appended(int bytes) {
+        this.appended += bytes;
+        if (this.pending.position() == bytes) {
+            this.notifyAll();
+        }
+    }
+    
+    private void commit() {
+        while (true) {
+            long target;
+            synchronized (this) {
+                while (this.pending.position() == 0 && !this.closed) {
+                    await(this);
+                }
+                if (this.pending.position() == 0) {
+                    return;
+                }
+                this.pending.flip();
+                this.writing.clear();
+                this.writing.putLong(0).put(this.pending);
+                this.pending.clear();
+                target = this.appended;
+                this.notifyAll();
+            }
+            try {
+                writeFrame(this.channel, this.writing.flip(), this.crc);
+                this.channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    this.failure = e;
+                    this.notifyAll();
+                }
+                // Whoever holds answers back for a durable position learns that it will not come
+                if (this.listener != null) {
+                    this.listener.accept(this.durable);
+                }
+                return;
+            }
+            synchronized (this) {
+                this.durable = target;
+                this.notifyAll();
+            }
+            if (this.listener != null) {
+                this.listener.accept(target);
+            }
+        }
+    }
+    
+    // Fills in the length and checksum of a frame whose records follow an 8 byte gap, then writes it
+    private static void writeFrame(FileChannel channel, ByteBuffer frame, CRC32 check) throws IOException {
+        check.reset();
+        check.update(frame.slice(FRAME_HEADER, frame.limit() - FRAME_HEADER));
+        frame.putInt(0, frame.limit() - FRAME_HEADER).putInt(4, (int) check.getValue());
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+    
+    private static void await(Object monitor) {
+        try {
+            monitor.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the journal", e);
+        }
+    }
+    
+    // A read-only view of the file that maps a new window whenever the bytes asked for lie outside the current one
+    private static final class Window {
+        
+        private final FileChannel channel;
+        private final long size;
+        private MappedByteBuffer buffer;
+        private long start;
+        
+        private Window(FileChannel channel, long size) {
+            this.channel = channel;
+            this.size = size;
+        }
+        
+        // The window holding the given bytes, which must lie within the file
+        private MappedByteBuffer buffer(long offset, int bytes) throws IOException {
+            if (this.buffer == null || offset < this.start || offset + bytes > this.start + this.buffer.limit()) {
+                this.start = offset;
+                this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW, this.size - offset));
+            }
+            return this.buffer;
+        }
+        
+        private MappedByteBuffer buffer() {
+            return this.buffer;
+        }
+        
+        private int at(long offset) {
+            return (int) (offset - this.start);
+        }
+        
+        // Maps a whole intact frame and returns where it starts in the window
+        private int frame(long offset) throws IOException {
+            int length = buffer(offset, FRAME_HEADER).getInt(at(offset));
+            buffer(offset, FRAME_HEADER + length);
+            return at(offset);
+        }
+        
+    }
+    
+    public interface Visitor {
+        
+        void create(long id, String fen) throws IOException;
+        
+        void move(long id, int move) throws IOException;
+        
+        void snapshot(long id, ByteBuffer state) throws IOException;
+        
+        void end(long id) throws IOException;
+        
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,237 @@
+package chess.server;
+
+import chess.ChessException;
+import chess.Move;
+import chess.TranspositionTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Matches sharded over lock stripes: everything done to one match runs under its stripe's lock, so moves to
+// the same match are serialized while matches on other stripes proceed in parallel. ChessMatch and its pieces
+// are not thread-safe, so sessions must only be touched inside apply. With a journal, matches created, moved
+// and ended are appended to it under the same lock, so each match's records are in the order they happened.
+public class MatchRegistry {
+    
+    private static final int CACHE_ENTRIES = 1 << 12;
+    
+    private Stripe[] stripes;
+    private int mask;
+    private int maxSessions;
+    private AtomicLong nextId;
+    private AtomicInteger size;
+    private MatchJournal journal;
+    
+    public MatchRegistry(int maxSessions) {
+        this(maxSessions, 16 * Runtime.getRuntime().availableProcessors());
+    }
+    
+    public MatchRegistry(int maxSessions, int stripes) {
+        this(maxSessions, stripes, null);
+    }
+    
+    public MatchRegistry(int maxSessions, int stripes, MatchJournal journal) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("There must be at least 1 stripe!");
+        }
+        int count = Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new Stripe[Math.max(count, 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = this.stripes.length - 1;
+        this.maxSessions = maxSessions;
+        this.nextId = new AtomicLong();
+        this.size = new AtomicInteger();
+        this.journal = journal;
+    }
+    
+    public MatchJournal getJournal() {
+        return journal;
+    }
+    
+    public int size() {
+        return this.size.get();
+    }
+    
+    public int getStripes() {
+        return this.stripes.length;
+    }
+    
+    // Starts a match from the initial position, or from the given FEN when it is not null
+    public long create(String fen) {
+        if (this.size.incrementAndGet() > this.maxSessions) {
+            this.size.decrementAndGet();
+            throw new ChessException("Server is full (" + this.maxSessions + " matches)");
+        }
+        long id = this.nextId.incrementAndGet();
+        Stripe stripe = stripe(id);
+        stripe.lock.lock();
+        try {
+            // Each stripe's matches share one move cache, which is safe because they share the lock as well
+            MatchSession session;
+            try {
+                session = new MatchSession(id, fen, stripe.cache, this.journal);
+            } catch (RuntimeException e) {
+                throw (e instanceof ChessException) ? e : new ChessException("Invalid FEN: " + fen);
+            }
+            if (this.journal != null) {
+                this.journal.create(id, fen);
+            }
+            stripe.sessions.put(id, session);
+            return id;
+        } catch (RuntimeException e) {
+            this.size.decrementAndGet();
+            throw e;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    public <T> T apply(long id, Function<MatchSession, T> action) {
+        Stripe stripe = stripe(id);
+        stripe.lock.lock();
+        try {
+            MatchSession session = stripe.sessions.get(id);
+            if (session == null) {
+                throw new ChessException("Unknown match " + id);
+            }
+            return action.apply(session);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    public MatchSession remove(long id) {
+        Stripe stripe = stripe(id);
+        stripe.lock.lock();
+        try {
+            MatchSession session = stripe.sessions.get(id);
+            if (session == null) {
+                throw new ChessException("Unknown match " + id);
+            }
+            if (this.journal != null) {
+                this.journal.end(id);
+            }
+            stripe.sessions.remove(id);
+            this.size.decrementAndGet();
+            return session;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    // Rebuilds the matches of the journal, before the registry is used; returns how many are live
+    public int recover() throws IOException {
+        if (this.journal == null) {
+            throw new IllegalStateException("There is no journal to recover from!");
+        }
+        if (this.size.get() > 0) {
+            throw new IllegalStateException("Matches can only be recovered into an empty registry!");
+        }
+        this.journal.replay(new MatchJournal.Visitor() {
+            
+            @Override
+            public void create(long id, String fen) throws IOException {
+                Stripe stripe = stripe(id);
+                try {
+                    stripe.sessions.put(id, new MatchSession(id, fen, stripe.cache, journal));
+                } catch (RuntimeException e) {
+                    throw new IOException("Cannot recover match " + id + " from FEN " + fen, e);
+                }
+                nextId.set(Math.max(nextId.get(), id));
+                size.incrementAndGet();
+            }
+            
+            @Override
+            public void move(long id, int move) throws IOException {
+                MatchSession session = stripe(id).sessions.get(id);
+                if (session == null) {
+                    throw new IOException("Journal moves unknown match " + id);
+                }
+                try {
+                    session.getChessMatch().performChessMovie(move);
+                } catch (RuntimeException e) {
+                    throw new IOException("Cannot replay " + Move.toString(move) + " in match " + id, e);
+                }
+            }
+            
+            @Override
+            public void snapshot(long id, ByteBuffer state) throws IOException {
+                Stripe stripe = stripe(id);
+                MatchSession session = stripe.sessions.get(id);
+                if (session == null) {
+                    session = new MatchSession(id, null, stripe.cache, journal);
+                    stripe.sessions.put(id, session);
+                    nextId.set(Math.max(nextId.get(), id));
+                    size.incrementAndGet();
+                }
+                try {
+                    session.getChessMatch().loadBinary(state);
+                } catch (ChessException e) {
+                    throw new IOException("Cannot restore match " + id + " from its snapshot", e);
+                }
+            }
+            
+            @Override
+            public void end(long id) {
+                if (stripe(id).sessions.remove(id) != null) {
+                    size.decrementAndGet();
+                }
+            }
+            
+        });
+        return this.size.get();
+    }
+    
+    // Rewrites the journal as one snapshot per live match. Every stripe stays locked until the new journal is in
+    // place, so this is meant for startup, right after recover, rather than for a busy server
+    public void checkpoint() throws IOException {
+        if (this.journal == null) {
+            throw new IllegalStateException("There is no journal to checkpoint!");
+        }
+        for (Stripe stripe : this.stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            this.journal.sync();
+            Map<Long, byte[]> states = new LinkedHashMap<>();
+            for (Stripe stripe : this.stripes) {
+                for (MatchSession session : stripe.sessions.values()) {
+                    states.put(session.getId(), session.getChessMatch().toBinary());
+                }
+            }
+            this.journal.rewrite(states);
+        } finally {
+            for (int i = this.stripes.length - 1; i >= 0; i--) {
+                this.stripes[i].lock.unlock();
+            }
+        }
+    }
+    
+    private Stripe stripe(long id) {
+        return this.stripes[(int) (id ^ (id >>> 32)) & this.mask];
+    }
+    
+    private static class Stripe {
+        
+        private ReentrantLock lock;
+        private Map<Long, MatchSession> sessions;
+        private TranspositionTable cache;
+        
+        private Stripe() {
+            this.lock = new ReentrantLock();
+            this.sessions = new HashMap<>();
+            this.cache = new TranspositionTable(CACHE_ENTRIES, TranspositionTable.ReplacementPolicy.OLDEST_STORED);
+        }
+        
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package chess.server;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+import chess.PositionSnapshot;
+import chess.TranspositionTable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MatchSession {
+    
+    // Every so many journaled moves the whole state is journaled instead, so replay never applies more than that
+    static final int SNAPSHOT_INTERVAL = 32;
+    
+    private long id;
+    private ChessMatch chessMatch;
+    private List<GameServer.Connection> watchers;
+    private MatchJournal journal;
+    private int unsnapshotted;
+    
+    public MatchSession(long id) {
+        this.id = id;
+        this.chessMatch = new ChessMatch();
+    }
+    
+    public MatchSession(long id, String fen) {
+        this.id = id;
+        this.chessMatch = new ChessMatch(fen);
+    }
+    
+    public MatchSession(long id, TranspositionTable cache) {
+        this.id = id;
+        this.chessMatch = new ChessMatch(cache);
+    }
+    
+    public MatchSession(long id, String fen, TranspositionTable cache) {
+        this.id = id;
+        this.chessMatch = new ChessMatch(fen, cache);
+    }
+    
+    // A match whose moves are appended to the journal; the FEN may be null for the initial position
+    MatchSession(long id, String fen, TranspositionTable cache, MatchJournal journal) {
+        this.id = id;
+        this.chessMatch = (fen == null) ? new ChessMatch(cache) : new ChessMatch(fen, cache);
+        this.journal = journal;
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    public ChessMatch getChessMatch() {
+        return chessMatch;
+    }
+    
+    // Connections following this match, created on the first WATCH
+    List<GameServer.Connection> getWatchers() {
+        if (this.watchers == null) {
+            this.watchers = new ArrayList<>(2);
+        }
+        return this.watchers;
+    }
+    
+    boolean hasWatchers() {
+        return this.watchers != null && !this.watchers.isEmpty();
+    }
+    
+    public boolean isOver() {
+        return this.chessMatch.getCheckMate() || this.chessMatch.getStaleMate();
+    }
+    
+    // Applies a move in coordinate notation; a pawn reaching the last rank without a piece letter becomes a queen
+    public String move(String move) {
+        if (isOver()) {
+            throw new ChessException("The match is over!");
+        }
+        int parsed = Move.parse(move);
+        if (this.journal == null) {
+            this.chessMatch.performChessMovie(parsed);
+            return status();
+        }
+        // Only moves the match accepts are journaled, so replaying the journal never meets an illegal one, and
+        // a move the journal refuses is not played, so the match never gets ahead of the journal
+        this.chessMatch.validateMove(parsed);
+        if (this.unsnapshotted + 1 < SNAPSHOT_INTERVAL) {
+            try {
+                this.journal.move(this.id, parsed);
+            } catch (IllegalStateException e) {
+                throw new ChessException(e.getMessage());
+            }
+            this.chessMatch.performChessMovie(parsed);
+            this.unsnapshotted++;
+        } else {
+            // A snapshot needs the position after the move, so the position before it, and the positions played up
+            // to it for repetitions, are kept to take it back
+            byte[] before = this.chessMatch.toBinary();
+            long[] played = this.chessMatch.getPlayedKeys();
+            this.chessMatch.performChessMovie(parsed);
+            try {
+                this.journal.snapshot(this.id, this.chessMatch.toBinary());
+            } catch (IllegalStateException e) {
+                this.chessMatch.loadBinary(ByteBuffer.wrap(before));
+                this.chessMatch.restorePlayedKeys(played);
+                throw new ChessException(e.getMessage());
+            }
+            this.unsnapshotted = 0;
+        }
+        return status();
+    }
+    
+    public String status() {
+        if (this.chessMatch.getCheckMate()) {
+            return "CHECKMATE";
+        }
+        if (this.chessMatch.getStaleMate()) {
+            return "STALEMATE";
+        }
+        return this.chessMatch.getCheck() ? "CHECK" : "PLAY";
+    }
+    
+    // The squares whose contents differ, each as a space, the square and its piece letter or - when empty
+    public static String changes(PositionSnapshot before, PositionSnapshot after) {
+        long changed = 0;
+        for (Color color : Color.values()) {
+            for (PieceType type : PieceType.values()) {
+                changed |= before.pieces(color, type) ^ after.pieces(color, type);
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (; changed != 0; changed &= changed - 1) {
+            int square = Long.numberOfTrailingZeros(changed);
+            sb.append(' ').append((char) ('a' + (square & 7))).append((char) ('8' - (square >> 3)));
+            PieceType type = after.type(square);
+            if (type == null) {
+                sb.append('-');
+            } else {
+                char letter = "PNBRQK".charAt(type.ordinal());
+                sb.append((after.color(square) == Color.CYAN) ? letter : Character.toLowerCase(letter));
+            }
+        }
+        return sb.toString();
+    }
+    
+}
\ No newline at end of file
@@ -0,0 +1,363 @@
+package chess.tablebase;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class Tablebase implements Closeable {
+    
+    // Header: u32 magic, u32 piece count; then one byte per position: 0 draw, 1..127 win in that many plies,
+    // 128 + n loss in n plies. Pawnless positions are stored once per board symmetry, with the stronger king in a1-d1-d4;
+    // positions with pawns only once per mirrored pair of files, with the stronger king on files a-d and the board
+    // turned so that the stronger side's pawns move down the rows as YELLOW's do
+    static final int MAGIC = 0x43544231;
+    static final int HEADER_SIZE = 8;
+    public static final int MAX_PIECES = 4;
+    public static final int NONE = -1;
+    static final int LOSS = 128;
+    static final int KING_SQUARES = 10;
+    static final int PAWN_KING_SQUARES = 32;
+    
+    private static final int[] TRIANGLE = new int[64];
+    private static final int[] TRIANGLE_SQUARES = new int[KING_SQUARES];
+    private static final String LETTERS = "PNBRQK";
+    
+    static {
+        int index = 0;
+        for (int square = 0; square < 64; square++) {
+            int row = square >> 3;
+            int column = square & 7;
+            TRIANGLE[square] = -1;
+            if (column <= 3 && row <= column) {
+                TRIANGLE[square] = index;
+                TRIANGLE_SQUARES[index++] = square;
+            }
+        }
+    }
+    
+    private Path directory;
+    private FileChannel[] channels;
+    // Probed by many search threads at once, so a table published by load is read without taking the lock
+    private AtomicReferenceArray<MappedByteBuffer> tables;
+    private AtomicIntegerArray missing;
+    private ThreadLocal<int[]> scratch;
+    
+    public Tablebase(Path directory) {
+        this.directory = directory;
+        this.channels = new FileChannel[1 << 15];
+        this.tables = new AtomicReferenceArray<>(1 << 15);
+        this.missing = new AtomicIntegerArray(1 << 15);
+        this.scratch = ThreadLocal.withInitial(() -> new int[3 * MAX_PIECES]);
+    }
+    
+    public static boolean isWin(int result) {
+        return result > 0 && result < LOSS;
+    }
+    
+    public static boolean isLoss(int result) {
+        return result >= LOSS;
+    }
+    
+    public static boolean isDraw(int result) {
+        return result == 0;
+    }
+    
+    public static int distance(int result) {
+        return (result == NONE) ? NONE : result & (LOSS - 1);
+    }
+    
+    public static String describe(int result) {
+        if (result == NONE) {
+            return "unknown";
+        }
+        if (isDraw(result)) {
+            return "draw";
+        }
+        return (isWin(result) ? "win" : "loss") + " in " + distance(result) + " plies";
+    }
+    
+    public Path getDirectory() {
+        return this.directory;
+    }
+    
+    // Result for the side to move, or NONE when the position has castling rights, too many pieces or no table; there
+    // are no tables with pawns on both sides, so en passant, which the tables do not index, never changes a result
+    public int probe(ChessMatch chessMatch) {
+        if (chessMatch.getCheckMate() || chessMatch.getCastlingRights() != 0) {
+            return NONE;
+        }
+        ChessBoard board = chessMatch.getBoard();
+        long occupied = board.occupancy();
+        if (Long.bitCount(occupied) > MAX_PIECES) {
+            return NONE;
+        }
+        int[] pieces = this.scratch.get();
+        int count = 0;
+        for (long b = occupied; b != 0; b &= b - 1) {
+            int square = Long.numberOfTrailingZeros(b);
+            pieces[count] = board.piece(square).getType().ordinal();
+            pieces[MAX_PIECES + count] = board.piece(square).getColor().ordinal();
+            pieces[2 * MAX_PIECES + count] = square;
+            count++;
+        }
+        return probe(count, pieces, chessMatch.getCurrentPlayer().ordinal());
+    }
+    
+    // The move that mates fastest, holds the draw, or loses slowest; Move.NONE when the position is not covered
+    public int bestMove(ChessMatch chessMatch, MoveList moves) {
+        if (probe(chessMatch) == NONE) {
+            return Move.NONE;
+        }
+        chessMatch.legalMoves(moves);
+        int best = Move.NONE;
+        int bestRank = Integer.MIN_VALUE;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+            chessMatch.playMove(move);
+            int rank;
+            if (chessMatch.getCheckMate()) {
+                rank = LOSS;
+            } else {
+                int result = probe(chessMatch);
+                rank = isLoss(result) ? LOSS - distance(result) : isWin(result) ? distance(result) - LOSS : 0;
+            }
+            chessMatch.undoLastMove();
+            if (rank > bestRank) {
+                best = move;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+    
+    // Pieces hold count types, then count sides (0 or 1), then count squares, each block MAX_PIECES long
+    int probe(int count, int[] pieces, int sideToMove) {
+        int strong = strongSide(count, pieces);
+        int signature = signature(count, pieces, strong);
+        if (signature < 0) {
+            return 0;
+        }
+        MappedByteBuffer table = table(signature);
+        if (table == null) {
+            return NONE;
+        }
+        int kingSquare = 0;
+        for (int i = 0; i < count; i++) {
+            if (pieces[i] == PieceType.KING.ordinal() && pieces[MAX_PIECES + i] == strong) {
+                kingSquare = pieces[2 * MAX_PIECES + i];
+            }
+        }
+        boolean pawns = hasPawns(signature);
+        int symmetry = pawns ? pawnSymmetry(kingSquare, strong) : symmetry(kingSquare);
+        long index = (sideToMove == strong) ? 0 : 1;
+        index = index * kingSquares(signature) + kingIndex(transform(kingSquare, symmetry), pawns);
+        for (int side = strong, n = 0; n < 2; side ^= 1, n++) {
+            for (int type = PieceType.KING.ordinal(); type >= PieceType.PAWN.ordinal(); type--) {
+                if (n == 0 && type == PieceType.KING.ordinal()) {
+                    continue;
+                }
+                for (int i = 0; i < count; i++) {
+                    if (pieces[i] == type && pieces[MAX_PIECES + i] == side) {
+                        index = (index << 6) | transform(pieces[2 * MAX_PIECES + i], symmetry);
+                    }
+                }
+            }
+        }
+        return table.get(HEADER_SIZE + (int) index) & 0xFF;
+    }
+    
+    // The side whose non-king material sorts first: more pieces, then the most valuable pieces
+    static int strongSide(int count, int[] pieces) {
+        int difference = material(count, pieces, 0, -1) - material(count, pieces, 1, -1);
+        for (int type = PieceType.QUEEN.ordinal(); difference == 0 && type > PieceType.PAWN.ordinal(); type--) {
+            difference = material(count, pieces, 0, type) - material(count, pieces, 1, type);
+        }
+        return (difference >= 0) ? 0 : 1;
+    }
+    
+    private static int material(int count, int[] pieces, int side, int type) {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            int t = pieces[i];
+            if (pieces[MAX_PIECES + i] == side && t != PieceType.KING.ordinal() && (type < 0 || t == type)) {
+                total++;
+            }
+        }
+        return total;
+    }
+    
+    // Octal digits: a leading 1, the strong side's pieces, 0 for the weak king, the weak side's pieces and a
+    // trailing 0, each piece its type ordinal plus 1, so KQKR is 015040; -1 for material that cannot mate
+    static int signature(int count, int[] pieces, int strong) {
+        int signature = 1;
+        for (int side = strong, n = 0; n < 2; side ^= 1, n++) {
+            for (int type = PieceType.QUEEN.ordinal(); type >= PieceType.PAWN.ordinal(); type--) {
+                for (int i = 0; i < count; i++) {
+                    if (pieces[i] == type && pieces[MAX_PIECES + i] == side) {
+                        signature = (signature << 3) | digit(type);
+                    }
+                }
+            }
+            signature <<= 3;
+        }
+        int piece = (signature >> 6) & 7;
+        if (count == 2 || (count == 3 && (piece == digit(PieceType.KNIGHT.ordinal()) || piece == digit(PieceType.BISHOP.ordinal())))) {
+            return -1;
+        }
+        return signature;
+    }
+    
+    static int signature(String name) {
+        int signature = 1;
+        for (int i = 1; i < name.length(); i++) {
+            int type = LETTERS.indexOf(name.charAt(i));
+            if (type < 0) {
+                throw new IllegalArgumentException("Not a piece letter in " + name + ": " + name.charAt(i));
+            }
+            signature = (signature << 3) | digit(type);
+        }
+        return signature << 3;
+    }
+    
+    static String name(int signature) {
+        String digits = Integer.toOctalString(signature);
+        StringBuilder sb = new StringBuilder("K");
+        for (int i = 1; i < digits.length() - 1; i++) {
+            sb.append(LETTERS.charAt(type(digits.charAt(i) - '0')));
+        }
+        return sb.toString();
+    }
+    
+    static int digit(int type) {
+        return (type == PieceType.KING.ordinal()) ? 0 : type + 1;
+    }
+    
+    static int type(int digit) {
+        return (digit == 0) ? PieceType.KING.ordinal() : digit - 1;
+    }
+    
+    static boolean hasPawns(int signature) {
+        return Integer.toOctalString(signature).indexOf((char) ('0' + digit(PieceType.PAWN.ordinal())), 1) >= 0;
+    }
+    
+    static int count(int signature) {
+        return Integer.toOctalString(signature).length() - 1;
+    }
+    
+    static int symmetry(int kingSquare) {
+        int row = kingSquare >> 3;
+        int column = kingSquare & 7;
+        int symmetry = 0;
+        if (column > 3) {
+            symmetry |= 1;
+            column = 7 - column;
+        }
+        if (row > 3) {
+            symmetry |= 2;
+            row = 7 - row;
+        }
+        if (row > column) {
+            symmetry |= 4;
+        }
+        return symmetry;
+    }
+    
+    // Pawns leave only the mirror between files, and the board is turned when the strong side is the one whose
+    // pawns move the other way
+    static int pawnSymmetry(int kingSquare, int strong) {
+        return (((kingSquare & 7) > 3) ? 1 : 0) | ((strong != 0) ? 2 : 0);
+    }
+    
+    static int transform(int square, int symmetry) {
+        int row = square >> 3;
+        int column = square & 7;
+        if ((symmetry & 1) != 0) {
+            column = 7 - column;
+        }
+        if ((symmetry & 2) != 0) {
+            row = 7 - row;
+        }
+        return ((symmetry & 4) != 0) ? (column << 3) | row : (row << 3) | column;
+    }
+    
+    static int kingSquares(int signature) {
+        return hasPawns(signature) ? PAWN_KING_SQUARES : KING_SQUARES;
+    }
+    
+    static int kingIndex(int square, boolean pawns) {
+        return pawns ? ((square >> 3) << 2) | (square & 3) : TRIANGLE[square];
+    }
+    
+    static int kingSquare(int index, boolean pawns) {
+        return pawns ? ((index >> 2) << 3) | (index & 3) : TRIANGLE_SQUARES[index];
+    }
+    
+    static long size(int signature) {
+        return 2L * kingSquares(signature) << (6 * (count(signature) - 1));
+    }
+    
+    Path path(int signature) {
+        return this.directory.resolve(name(signature) + ".tb");
+    }
+    
+    synchronized void forget(int signature) {
+        this.missing.set(signature, 0);
+    }
+    
+    private MappedByteBuffer table(int signature) {
+        MappedByteBuffer table = this.tables.get(signature);
+        if (table == null && this.missing.get(signature) == 0) {
+            table = load(signature);
+        }
+        return table;
+    }
+    
+    private synchronized MappedByteBuffer load(int signature) {
+        if (this.tables.get(signature) != null || this.missing.get(signature) != 0) {
+            return this.tables.get(signature);
+        }
+        Path path = path(signature);
+        if (!Files.isRegularFile(path)) {
+            this.missing.set(signature, 1);
+            return null;
+        }
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int count = count(signature);
+            if (table.limit() != HEADER_SIZE + size(signature) || table.getInt(0) != MAGIC || table.getInt(4) != count) {
+                channel.close();
+                throw new IOException("Not an endgame table: " + path);
+            }
+            this.channels[signature] = channel;
+            this.tables.set(signature, table);
+            return table;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read endgame table " + path, e);
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        for (int i = 0; i < this.channels.length; i++) {
+            if (this.channels[i] != null) {
+                this.channels[i].close();
+                this.channels[i] = null;
+                this.tables.set(i, null);
+            }
+        }
+    }
+    
+}
\ No newline at end of file
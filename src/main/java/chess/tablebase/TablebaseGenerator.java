@@ -0,0 +1,456 @@
+package chess.tablebase;
+
+import chess.Bitboards;
+import chess.Color;
+import chess.PieceType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class TablebaseGenerator {
+    
+    private static final PieceType[] TYPES = PieceType.values();
+    private static final Color[] COLORS = Color.values();
+    private static final byte BLOCKED = 127;
+    
+    private Tablebase tablebase;
+    private int count;
+    private int[] types;
+    private int[] sides;
+    private int[] squares;
+    private int[] child;
+    private byte[] values;
+    private byte[] pending;
+    private byte[] counters;
+    private long positions;
+    
+    public TablebaseGenerator(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        this.types = new int[Tablebase.MAX_PIECES];
+        this.sides = new int[Tablebase.MAX_PIECES];
+        this.squares = new int[Tablebase.MAX_PIECES];
+        this.child = new int[3 * Tablebase.MAX_PIECES];
+    }
+    
+    // Generates the table for the given material, such as KQKR or KPK, and every table its captures and promotions
+    // lead to; returns the canonical name, with the stronger side first
+    public String generate(String name) throws IOException {
+        int weakKing = name.indexOf('K', 1);
+        if (name.length() < 3 || name.length() > Tablebase.MAX_PIECES || name.charAt(0) != 'K'
+                || weakKing < 0 || name.indexOf('K', weakKing + 1) >= 0) {
+            throw new IllegalArgumentException("Not a 3 or 4 piece signature: " + name);
+        }
+        if (name.indexOf('P') >= 0 && name.indexOf('P') < weakKing && name.indexOf('P', weakKing) >= 0) {
+            throw new IllegalArgumentException(name + " has pawns on both sides, where en passant matters, which the tables do not index");
+        }
+        int signature = canonical(Tablebase.signature(name));
+        if (signature < 0) {
+            throw new IllegalArgumentException(name + " cannot be won by either side");
+        }
+        generate(signature);
+        return Tablebase.name(signature);
+    }
+    
+    public long getPositions() {
+        return this.positions;
+    }
+    
+    private void generate(int signature) throws IOException {
+        if (Files.isRegularFile(this.tablebase.path(signature))) {
+            return;
+        }
+        // The tables of captures and promotions are all named before any is generated, since generating one decodes
+        // its own signature over this one
+        decode(signature);
+        int n = this.count;
+        int[] dependencies = new int[5 * n];
+        int found = 0;
+        for (int i = 0; i < n; i++) {
+            if (this.types[i] == PieceType.KING.ordinal()) {
+                continue;
+            }
+            dependencies[found++] = dependency(i, -1, -1);
+            if (this.types[i] == PieceType.PAWN.ordinal()) {
+                for (int type = PieceType.KNIGHT.ordinal(); type <= PieceType.QUEEN.ordinal(); type++) {
+                    dependencies[found++] = dependency(-1, i, type);
+                }
+            }
+        }
+        for (int i = 0; i < found; i++) {
+            if (dependencies[i] >= 0) {
+                generate(dependencies[i]);
+            }
+        }
+        decode(signature);
+        solve();
+        write(signature);
+    }
+    
+    // The signature once the removed piece is taken off and the changed one becomes the given type
+    private int dependency(int removed, int changed, int type) {
+        int[] pieces = new int[3 * Tablebase.MAX_PIECES];
+        int k = 0;
+        for (int i = 0; i < this.count; i++) {
+            if (i != removed) {
+                pieces[k] = (i == changed) ? type : this.types[i];
+                pieces[Tablebase.MAX_PIECES + k] = this.sides[i];
+                k++;
+            }
+        }
+        return Tablebase.signature(k, pieces, Tablebase.strongSide(k, pieces));
+    }
+    
+    private int canonical(int signature) {
+        decode(signature);
+        int[] pieces = new int[3 * Tablebase.MAX_PIECES];
+        for (int i = 0; i < this.count; i++) {
+            pieces[i] = this.types[i];
+            pieces[Tablebase.MAX_PIECES + i] = this.sides[i];
+        }
+        return Tablebase.signature(this.count, pieces, Tablebase.strongSide(this.count, pieces));
+    }
+    
+    // Piece order of the index: strong king, strong pieces, weak king, weak pieces, as in the signature digits
+    private void decode(int signature) {
+        String digits = Integer.toOctalString(signature);
+        this.count = digits.length() - 1;
+        this.types[0] = PieceType.KING.ordinal();
+        this.sides[0] = 0;
+        int side = 0;
+        for (int i = 1; i < this.count; i++) {
+            int type = Tablebase.type(digits.charAt(i) - '0');
+            if (type == PieceType.KING.ordinal()) {
+                side = 1;
+            }
+            this.types[i] = type;
+            this.sides[i] = side;
+        }
+    }
+    
+    private void solve() {
+        int n = this.count;
+        int size = 2 << (6 * n);
+        this.values = new byte[size];
+        this.pending = new byte[size];
+        this.counters = new byte[size];
+        
+        int horizon = 0;
+        for (int index = 0; index < size; index++) {
+            horizon = Math.max(horizon, initialize(index));
+        }
+        
+        // Retrograde pass, one distance at a time: a loss at distance d makes every predecessor a win at d + 1,
+        // and a win at d removes one escape from each predecessor, which is lost once none is left
+        for (int distance = 0; ; distance++) {
+            boolean found = false;
+            for (int index = 0; index < size; index++) {
+                int value = this.values[index] & 0xFF;
+                if (value == 0) {
+                    int candidate = this.pending[index] & 0xFF;
+                    if (candidate == 0 || Tablebase.distance(candidate) != distance
+                            || (Tablebase.isLoss(candidate) && this.counters[index] != 0)) {
+                        continue;
+                    }
+                    this.values[index] = (byte) candidate;
+                    value = candidate;
+                }
+                if (Tablebase.distance(value) == distance) {
+                    found = true;
+                    unmove(index, value, distance);
+                }
+            }
+            if (!found && distance >= horizon) {
+                break;
+            }
+        }
+        this.positions += size;
+    }
+    
+    // Sets up the escape counter of a position and resolves its captures against the smaller tables;
+    // returns the distance of any result left pending
+    private int initialize(int index) {
+        int n = this.count;
+        int sideToMove = index >>> (6 * n);
+        long occupied = 0;
+        boolean misplaced = false;
+        for (int i = 0; i < n; i++) {
+            this.squares[i] = (index >>> (6 * (n - 1 - i))) & 63;
+            occupied |= Bitboards.bit(this.squares[i]);
+            int row = this.squares[i] >> 3;
+            misplaced |= this.types[i] == PieceType.PAWN.ordinal() && (row == 0 || row == 7);
+        }
+        if (misplaced || Long.bitCount(occupied) != n || isAttacked(king(sideToMove ^ 1), sideToMove, -1, occupied)) {
+            this.counters[index] = BLOCKED;
+            return 0;
+        }
+        
+        int quiet = 0;
+        int legal = 0;
+        int win = Integer.MAX_VALUE;
+        int loss = 0;
+        boolean draw = false;
+        for (int i = 0; i < n; i++) {
+            if (this.sides[i] != sideToMove) {
+                continue;
+            }
+            int from = this.squares[i];
+            boolean pawn = this.types[i] == PieceType.PAWN.ordinal();
+            long targets = pawn ? (attacks(i, occupied) & own(sideToMove ^ 1)) | pushes(i, occupied) : attacks(i, occupied) & ~own(sideToMove);
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Long.numberOfTrailingZeros(targets);
+                int captured = pieceAt(to);
+                this.squares[i] = to;
+                long after = (occupied & ~Bitboards.bit(from)) | Bitboards.bit(to);
+                if (!isAttacked(king(sideToMove), sideToMove ^ 1, captured, after)) {
+                    legal++;
+                    boolean promotes = pawn && ((to >> 3) == 0 || (to >> 3) == 7);
+                    if (captured < 0 && !promotes) {
+                        quiet++;
+                    } else {
+                        // A capture or a promotion leaves this table, so its result comes from the smaller or other one
+                        int last = promotes ? PieceType.QUEEN.ordinal() : this.types[i];
+                        for (int type = promotes ? PieceType.KNIGHT.ordinal() : last; type <= last; type++) {
+                            int result = probeChild(captured, i, type, sideToMove ^ 1);
+                            if (Tablebase.isDraw(result)) {
+                                draw = true;
+                            } else if (Tablebase.isLoss(result)) {
+                                win = Math.min(win, Tablebase.distance(result) + 1);
+                            } else {
+                                loss = Math.max(loss, Tablebase.distance(result) + 1);
+                            }
+                        }
+                    }
+                }
+                this.squares[i] = from;
+            }
+        }
+        
+        this.counters[index] = (byte) quiet;
+        if (legal == 0) {
+            if (isAttacked(king(sideToMove), sideToMove ^ 1, -1, occupied)) {
+                this.values[index] = (byte) Tablebase.LOSS;
+            } else {
+                this.counters[index] = BLOCKED;
+            }
+        } else if (win != Integer.MAX_VALUE) {
+            this.pending[index] = (byte) checked(win);
+            return win;
+        } else if (draw) {
+            this.counters[index] = BLOCKED;
+        } else if (loss > 0) {
+            this.pending[index] = (byte) (Tablebase.LOSS + checked(loss));
+            return loss;
+        }
+        return 0;
+    }
+    
+    private void unmove(int index, int value, int distance) {
+        int n = this.count;
+        int sideToMove = index >>> (6 * n);
+        int mover = sideToMove ^ 1;
+        long occupied = 0;
+        for (int i = 0; i < n; i++) {
+            this.squares[i] = (index >>> (6 * (n - 1 - i))) & 63;
+            occupied |= Bitboards.bit(this.squares[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            if (this.sides[i] != mover) {
+                continue;
+            }
+            int to = this.squares[i];
+            long sources = (this.types[i] == PieceType.PAWN.ordinal()) ? retreats(i, occupied) : attacks(i, occupied) & ~occupied;
+            for (; sources != 0; sources &= sources - 1) {
+                int from = Long.numberOfTrailingZeros(sources);
+                this.squares[i] = from;
+                long before = (occupied & ~Bitboards.bit(to)) | Bitboards.bit(from);
+                if (!isAttacked(king(sideToMove), mover, -1, before)) {
+                    update(encode(mover), value, distance + 1);
+                }
+            }
+            this.squares[i] = to;
+        }
+    }
+    
+    private void update(int predecessor, int value, int distance) {
+        if (this.values[predecessor] != 0) {
+            return;
+        }
+        if (Tablebase.isLoss(value)) {
+            this.values[predecessor] = (byte) checked(distance);
+        } else if (this.counters[predecessor] != BLOCKED && --this.counters[predecessor] == 0) {
+            int candidate = this.pending[predecessor] & 0xFF;
+            // A pending capture win is still to come; a slower capture loss is finalized at its own distance
+            if (candidate == 0 || (Tablebase.isLoss(candidate) && Tablebase.distance(candidate) <= distance)) {
+                this.values[predecessor] = (byte) (Tablebase.LOSS + checked(distance));
+            }
+        }
+    }
+    
+    // Result of the position without the captured piece, if any, and with the changed one turned into the given type
+    private int probeChild(int captured, int changed, int type, int sideToMove) {
+        int k = 0;
+        for (int i = 0; i < this.count; i++) {
+            if (i != captured) {
+                this.child[k] = (i == changed) ? type : this.types[i];
+                this.child[Tablebase.MAX_PIECES + k] = this.sides[i];
+                this.child[2 * Tablebase.MAX_PIECES + k] = this.squares[i];
+                k++;
+            }
+        }
+        int result = this.tablebase.probe(k, this.child, sideToMove);
+        if (result == Tablebase.NONE) {
+            throw new IllegalStateException("Missing endgame table for a capture or promotion from " + this.tablebase.getDirectory());
+        }
+        return result;
+    }
+    
+    private void write(int signature) throws IOException {
+        int n = this.count;
+        long size = Tablebase.size(signature);
+        int kings = Tablebase.kingSquares(signature);
+        boolean pawns = Tablebase.hasPawns(signature);
+        int shift = 6 * (n - 1);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        Path path = this.tablebase.path(signature);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(Tablebase.MAGIC).putInt(n);
+            for (long reduced = 0; reduced < size; reduced++) {
+                int king = (int) (reduced >>> shift);
+                int sideToMove = king / kings;
+                int square = Tablebase.kingSquare(king % kings, pawns);
+                int index = (sideToMove << (6 * n)) | (square << shift) | (int) (reduced & ((1L << shift) - 1));
+                if (!buffer.hasRemaining()) {
+                    flush(channel, buffer);
+                }
+                buffer.put(this.values[index]);
+            }
+            flush(channel, buffer);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        this.tablebase.forget(signature);
+        this.values = null;
+        this.pending = null;
+        this.counters = null;
+    }
+    
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    private static int checked(int distance) {
+        if (distance >= Tablebase.LOSS) {
+            throw new IllegalStateException("Distance to mate does not fit in a table entry: " + distance);
+        }
+        return distance;
+    }
+    
+    private int encode(int sideToMove) {
+        int index = sideToMove;
+        for (int i = 0; i < this.count; i++) {
+            index = (index << 6) | this.squares[i];
+        }
+        return index;
+    }
+    
+    private int king(int side) {
+        return this.squares[(side == 0) ? 0 : kingIndex()];
+    }
+    
+    private int kingIndex() {
+        for (int i = 1; ; i++) {
+            if (this.types[i] == PieceType.KING.ordinal()) {
+                return i;
+            }
+        }
+    }
+    
+    private int pieceAt(int square) {
+        for (int i = 0; i < this.count; i++) {
+            if (this.squares[i] == square) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private long own(int side) {
+        long own = 0;
+        for (int i = 0; i < this.count; i++) {
+            if (this.sides[i] == side) {
+                own |= Bitboards.bit(this.squares[i]);
+            }
+        }
+        return own;
+    }
+    
+    // A pawn moves as those of the Color with its side's ordinal: side 0 down the rows, side 1 up them
+    private long pushes(int piece, long occupied) {
+        int square = this.squares[piece];
+        int step = (this.sides[piece] == 0) ? 8 : -8;
+        int start = (this.sides[piece] == 0) ? 1 : 6;
+        long pushes = 0;
+        if ((occupied & Bitboards.bit(square + step)) == 0) {
+            pushes |= Bitboards.bit(square + step);
+            if ((square >> 3) == start && (occupied & Bitboards.bit(square + 2 * step)) == 0) {
+                pushes |= Bitboards.bit(square + 2 * step);
+            }
+        }
+        return pushes;
+    }
+    
+    // The squares a pawn can have been pushed from, never its own first row
+    private long retreats(int piece, long occupied) {
+        int square = this.squares[piece];
+        int step = (this.sides[piece] == 0) ? 8 : -8;
+        int start = (this.sides[piece] == 0) ? 1 : 6;
+        int first = (this.sides[piece] == 0) ? 0 : 7;
+        long retreats = 0;
+        if ((occupied & Bitboards.bit(square - step)) == 0 && ((square - step) >> 3) != first) {
+            retreats |= Bitboards.bit(square - step);
+            if (((square - 2 * step) >> 3) == start && (occupied & Bitboards.bit(square - 2 * step)) == 0) {
+                retreats |= Bitboards.bit(square - 2 * step);
+            }
+        }
+        return retreats;
+    }
+    
+    private boolean isAttacked(int square, int side, int excluded, long occupied) {
+        long target = Bitboards.bit(square);
+        for (int i = 0; i < this.count; i++) {
+            if (this.sides[i] == side && i != excluded && (attacks(i, occupied) & target) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private long attacks(int piece, long occupied) {
+        int square = this.squares[piece];
+        switch (TYPES[this.types[piece]]) {
+            case KNIGHT:
+                return Bitboards.knightAttacks(square);
+            case BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            case QUEEN:
+                return Bitboards.queenAttacks(square, occupied);
+            case PAWN:
+                return Bitboards.pawnAttacks(COLORS[this.sides[piece]], square);
+            default:
+                return Bitboards.kingAttacks(square);
+        }
+    }
+    
+}
\ No newline at end of file